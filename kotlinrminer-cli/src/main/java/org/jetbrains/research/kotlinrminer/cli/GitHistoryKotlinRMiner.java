@@ -4,29 +4,137 @@ import org.apache.commons.io.IOUtils;
 import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.jetbrains.kotlin.com.intellij.openapi.Disposable;
 import org.jetbrains.kotlin.com.intellij.openapi.project.Project;
+import org.jetbrains.research.kotlinrminer.cli.diff.UMLModelDiff;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLModel;
+import org.jetbrains.research.kotlinrminer.cli.util.KotlinEnvironmentPool;
+import org.jetbrains.research.kotlinrminer.cli.util.KotlinTokenUtil;
+import org.jetbrains.research.kotlinrminer.cli.util.RepositoryDirectoryIndex;
 import org.jetbrains.research.kotlinrminer.common.RefactoringType;
 
 import java.io.File;
 import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class GitHistoryKotlinRMiner {
+public class GitHistoryKotlinRMiner implements Disposable {
     private static final String GITHUB_URL = "https://github.com/";
     private static final String BITBUCKET_URL = "https://bitbucket.org/";
+    private static final int DIRECTORY_INDEX_SIZE = 16;
     private final RefactoringType[] refactoringTypesToConsider = RefactoringType.ALL;
+    private final KotlinEnvironmentPool environmentPool;
+    private final boolean ownsEnvironmentPool;
+    private int threadCount = 1;
+    private int maxPendingCommits = 2;
+    private int parsingThreadCount = 1;
+    private int mappingThreadCount = 1;
+    private ExecutorService mappingExecutor;
+    private UMLModelCache modelCache;
+    private boolean lazyBodies;
+    private final RepositoryDirectoryIndex directoryIndex = new RepositoryDirectoryIndex(DIRECTORY_INDEX_SIZE);
+
+    public GitHistoryKotlinRMiner() {
+        this.environmentPool = new KotlinEnvironmentPool();
+        this.ownsEnvironmentPool = true;
+    }
+
+    /**
+     * Sets the number of threads that analyze commits in {@link #detectAll} and {@link #detectBetweenCommits}.
+     * With more than one thread, every worker parses files with its own environment from the pool.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be positive: " + threadCount);
+        }
+        this.threadCount = threadCount;
+        this.maxPendingCommits = 2 * threadCount;
+    }
+
+    /**
+     * Sets the maximum number of commits that are analyzed or wait for their results to be handled at the same time.
+     */
+    public void setMaxPendingCommits(int maxPendingCommits) {
+        if (maxPendingCommits < 1) {
+            throw new IllegalArgumentException("maxPendingCommits must be positive: " + maxPendingCommits);
+        }
+        this.maxPendingCommits = maxPendingCommits;
+    }
+
+    /**
+     * Sets the number of threads that parse the changed files of a single commit.
+     */
+    public void setParsingThreadCount(int parsingThreadCount) {
+        if (parsingThreadCount < 1) {
+            throw new IllegalArgumentException("parsingThreadCount must be positive: " + parsingThreadCount);
+        }
+        this.parsingThreadCount = parsingThreadCount;
+    }
+
+    /**
+     * Sets the number of threads that map the bodies of the compared operations. The threads are shared by all
+     * the commits analyzed by the miner, so the commits analyzed at the same time do not add threads of their own.
+     */
+    public synchronized void setMappingThreadCount(int mappingThreadCount) {
+        if (mappingThreadCount < 1) {
+            throw new IllegalArgumentException("mappingThreadCount must be positive: " + mappingThreadCount);
+        }
+        this.mappingThreadCount = mappingThreadCount;
+        shutdownMappingExecutor();
+    }
+
+    /**
+     * Sets the cache of single file models, keyed by git blob id, which lets consecutive commits share
+     * the parsed versions of their files. The cached models are shared between the models of different commits,
+     * which may be analyzed by different threads, since mapping the operations does not modify the models.
+     */
+    public void setModelCache(UMLModelCache modelCache) {
+        this.modelCache = modelCache;
+    }
+
+    /**
+     * Sets whether the operation bodies are decomposed only when they are mapped. The first use of a body parses
+     * its file again, so this saves time only in commits where most of the bodies are never mapped.
+     * The bodies of the files stored in the model cache are always decomposed eagerly.
+     */
+    public void setLazyBodies(boolean lazyBodies) {
+        this.lazyBodies = lazyBodies;
+    }
+
+    /**
+     * Creates a miner that parses files with environments from the given pool.
+     * The pool is not disposed together with the miner, so it can be shared between several miners.
+     */
+    public GitHistoryKotlinRMiner(KotlinEnvironmentPool environmentPool) {
+        this.environmentPool = environmentPool;
+        this.ownsEnvironmentPool = false;
+    }
 
     protected List<Refactoring> detectRefactorings(@Nullable Project project,
                                                    GitService gitService,
                                                    Repository repository,
                                                    RevCommit currentCommit,
                                                    RefactoringHandler handler) throws Exception {
+        CommitResult result = analyzeCommit(project, gitService, repository, currentCommit);
+        handler.handle(result.commitId, result.refactorings, result.ktFilesChanged);
+        return result.refactorings;
+    }
+
+    private CommitResult analyzeCommit(@Nullable Project project,
+                                       GitService gitService,
+                                       Repository repository,
+                                       RevCommit currentCommit) throws Exception {
         List<Refactoring> refactoringsAtRevision;
         String commitId = currentCommit.getId().getName();
         List<String> filePathsBefore = new ArrayList<>();
@@ -34,71 +142,147 @@ public class GitHistoryKotlinRMiner {
         Map<String, String> renamedFilesHint = new HashMap<>();
         gitService.fileTreeDiff(repository, currentCommit, filePathsBefore, filePathsCurrent, renamedFilesHint);
 
-        Set<String> repositoryDirectoriesBefore = new LinkedHashSet<>();
-        Set<String> repositoryDirectoriesCurrent = new LinkedHashSet<>();
         Map<String, String> fileContentsBefore = new LinkedHashMap<>();
         Map<String, String> fileContentsCurrent = new LinkedHashMap<>();
-        try (RevWalk walk = new RevWalk(repository)) {
-            // If no kt files changed, there is no refactoring. Also, if there are
-            // only ADD's or only REMOVE's there is no refactoring
-            boolean ktFilesChanged = !filePathsBefore.isEmpty() && !filePathsCurrent.isEmpty();
-            if (ktFilesChanged && currentCommit.getParentCount() > 0) {
-                RevCommit parentCommit = currentCommit.getParent(0);
-                populateFileContents(repository, parentCommit, filePathsBefore, fileContentsBefore,
-                    repositoryDirectoriesBefore);
-                UMLModel parentUMLModel = createModelInKotlin(project, fileContentsBefore, repositoryDirectoriesBefore);
-
-                populateFileContents(repository, currentCommit, filePathsCurrent, fileContentsCurrent,
-                    repositoryDirectoriesCurrent);
-                UMLModel currentUMLModel = createModelInKotlin(project, fileContentsCurrent, repositoryDirectoriesCurrent);
-
-                refactoringsAtRevision = parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings();
+        Map<String, String> fileBlobIdsBefore = new HashMap<>();
+        Map<String, String> fileBlobIdsCurrent = new HashMap<>();
+        // If no kt files changed, there is no refactoring. Also, if there are
+        // only ADD's or only REMOVE's there is no refactoring
+        boolean ktFilesChanged = !filePathsBefore.isEmpty() && !filePathsCurrent.isEmpty();
+        if (ktFilesChanged && currentCommit.getParentCount() > 0) {
+            RevCommit parentCommit = currentCommit.getParent(0);
+            Set<String> repositoryDirectoriesBefore =
+                populateFileContents(repository, parentCommit, filePathsBefore, fileContentsBefore, fileBlobIdsBefore);
+            Set<String> repositoryDirectoriesCurrent = populateFileContents(repository, currentCommit,
+                filePathsCurrent, fileContentsCurrent, fileBlobIdsCurrent);
+            removeFormattingChanges(renamedFilesHint, fileContentsBefore, fileContentsCurrent, fileBlobIdsBefore,
+                fileBlobIdsCurrent);
+            if (!fileContentsBefore.isEmpty() && !fileContentsCurrent.isEmpty()) {
+                UMLModel parentUMLModel =
+                    createModelInKotlin(project, fileContentsBefore, fileBlobIdsBefore, repositoryDirectoriesBefore);
+                UMLModel currentUMLModel =
+                    createModelInKotlin(project, fileContentsCurrent, fileBlobIdsCurrent, repositoryDirectoriesCurrent);
+
+                UMLModelDiff modelDiff =
+                    parentUMLModel.diff(currentUMLModel, renamedFilesHint, getMappingExecutor());
+                refactoringsAtRevision = modelDiff.getRefactorings();
                 refactoringsAtRevision = filter(refactoringsAtRevision);
             } else {
                 refactoringsAtRevision = Collections.emptyList();
             }
-            handler.handle(commitId, refactoringsAtRevision, ktFilesChanged);
+        } else {
+            refactoringsAtRevision = Collections.emptyList();
+        }
+        return new CommitResult(commitId, refactoringsAtRevision, ktFilesChanged, null);
+    }
 
-            walk.dispose();
+    private CommitResult analyzeCommitSafely(GitService gitService, Repository repository, RevCommit currentCommit) {
+        try {
+            return analyzeCommit(null, gitService, repository, currentCommit);
+        } catch (Exception e) {
+            return new CommitResult(currentCommit.getId().getName(), Collections.emptyList(), false, e);
         }
-        return refactoringsAtRevision;
     }
 
     private void detect(GitService gitService,
                         Repository repository,
                         final RefactoringHandler handler,
-                        Iterator<RevCommit> i) {
-        int commitsCount = 0;
-        int errorCommitsCount = 0;
-        int refactoringsCount = 0;
+                        Iterator<RevCommit> i) throws InterruptedException {
+        DetectionStatistics statistics = new DetectionStatistics();
 
         File metadataFolder = repository.getDirectory();
         File projectFolder = metadataFolder.getParentFile();
         String projectName = projectFolder.getName();
 
-        long time = System.currentTimeMillis();
-        while (i.hasNext()) {
-            RevCommit currentCommit = i.next();
-            try {
-                List<Refactoring> refactoringsAtRevision =
-                    detectRefactorings(null, gitService, repository, currentCommit, handler);
-                refactoringsCount += refactoringsAtRevision.size();
+        if (threadCount > 1) {
+            detectInParallel(gitService, repository, handler, i, statistics);
+        } else {
+            while (i.hasNext()) {
+                RevCommit currentCommit = i.next();
+                handleResult(handler, analyzeCommitSafely(gitService, repository, currentCommit), statistics);
+            }
+        }
 
-            } catch (Exception e) {
-                handler.handleException(currentCommit.getId().getName(), e);
-                errorCommitsCount++;
+        int commitsCount = statistics.commitsCount.get();
+        int errorCommitsCount = statistics.errorCommitsCount.get();
+        int refactoringsCount = statistics.refactoringsCount.get();
+        handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
+        System.err.printf("Analyzed %s [Commits: %d, Errors: %d, Refactorings: %d]%n", projectName,
+            commitsCount, errorCommitsCount, refactoringsCount);
+    }
+
+    /**
+     * Analyzes the commits on a pool of worker threads, each of them parsing files with its own Kotlin environment.
+     * At most {@code maxPendingCommits} commits are in flight at any time. Unless the handler is concurrent,
+     * its callbacks are called from the current thread in the order of the commits.
+     */
+    private void detectInParallel(GitService gitService,
+                                  Repository repository,
+                                  final RefactoringHandler handler,
+                                  Iterator<RevCommit> i,
+                                  DetectionStatistics statistics) throws InterruptedException {
+        boolean concurrentHandler = handler.isConcurrent();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        Deque<Future<CommitResult>> pendingResults = new ArrayDeque<>();
+        try {
+            while (i.hasNext()) {
+                RevCommit currentCommit = i.next();
+                pendingResults.addLast(executor.submit(() -> {
+                    CommitResult result = analyzeCommitSafely(gitService, repository, currentCommit);
+                    if (concurrentHandler) {
+                        handleResult(handler, result, statistics);
+                    }
+                    return result;
+                }));
+                while (!pendingResults.isEmpty() &&
+                    (pendingResults.size() >= maxPendingCommits || pendingResults.peekFirst().isDone())) {
+                    CommitResult result = awaitResult(pendingResults.removeFirst());
+                    if (!concurrentHandler) {
+                        handleResult(handler, result, statistics);
+                    }
+                }
             }
+            while (!pendingResults.isEmpty()) {
+                CommitResult result = awaitResult(pendingResults.removeFirst());
+                if (!concurrentHandler) {
+                    handleResult(handler, result, statistics);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            commitsCount++;
-            long time2 = System.currentTimeMillis();
-            if ((time2 - time) > 20000) {
-                time = time2;
+    private static CommitResult awaitResult(Future<CommitResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
+            throw new IllegalStateException(cause);
         }
+    }
 
-        handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
-        System.out.printf("Analyzed %s [Commits: %d, Errors: %d, Refactorings: %d]%n", projectName,
-            commitsCount, errorCommitsCount, refactoringsCount);
+    private void handleResult(RefactoringHandler handler, CommitResult result, DetectionStatistics statistics) {
+        Exception exception = result.exception;
+        if (exception == null) {
+            try {
+                handler.handle(result.commitId, result.refactorings, result.ktFilesChanged);
+                statistics.refactoringsCount.addAndGet(result.refactorings.size());
+            } catch (Exception e) {
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            handler.handleException(result.commitId, exception);
+            statistics.errorCommitsCount.incrementAndGet();
+        }
+        statistics.commitsCount.incrementAndGet();
     }
 
     public void detectAtCommit(@Nullable Project project, Repository repository, String commitId, RefactoringHandler handler) {
@@ -154,43 +338,140 @@ public class GitHistoryKotlinRMiner {
 
     protected UMLModel createModelInKotlin(@Nullable Project project, Map<String, String> fileContents, Set<String> repositoryDirectories) throws
         Exception {
-        UMLModelPsiReaderCli psiReader = new UMLModelPsiReaderCli(repositoryDirectories);
-        psiReader.parseFiles(fileContents);
+        return createModelInKotlin(project, fileContents, Collections.emptyMap(), repositoryDirectories);
+    }
+
+    protected UMLModel createModelInKotlin(@Nullable Project project,
+                                           Map<String, String> fileContents,
+                                           Map<String, String> fileBlobIds,
+                                           Set<String> repositoryDirectories) throws Exception {
+        UMLModelPsiReaderCli psiReader = new UMLModelPsiReaderCli(repositoryDirectories, environmentPool);
+        psiReader.setThreadCount(parsingThreadCount);
+        if (modelCache != null) {
+            psiReader.setModelCache(modelCache);
+        } else if (lazyBodies) {
+            psiReader.setLazyBodies(true);
+        }
+        psiReader.parseFiles(fileContents, fileBlobIds);
         return psiReader.getUmlModel();
     }
 
-    private void populateFileContents(Repository repository,
-                                      RevCommit commit,
-                                      List<String> filePaths,
-                                      Map<String, String> fileContents,
-                                      Set<String> repositoryDirectories) throws Exception {
+    /**
+     * Reads the contents of the given files at the commit, walking only the paths that lead to them.
+     * @return The directories of the commit that contain Kotlin files.
+     */
+    private Set<String> populateFileContents(Repository repository,
+                                             RevCommit commit,
+                                             List<String> filePaths,
+                                             Map<String, String> fileContents,
+                                             Map<String, String> fileBlobIds) throws Exception {
         RevTree parentTree = commit.getTree();
-        try (TreeWalk treeWalk = new TreeWalk(repository)) {
-            treeWalk.addTree(parentTree);
-            treeWalk.setRecursive(true);
-            while (treeWalk.next()) {
-                String pathString = treeWalk.getPathString();
-                if (filePaths.contains(pathString)) {
-                    ObjectId objectId = treeWalk.getObjectId(0);
-                    ObjectLoader loader = repository.open(objectId);
-                    StringWriter writer = new StringWriter();
-                    IOUtils.copy(loader.openStream(), writer);
-                    fileContents.put(pathString, writer.toString());
-                }
-                if (pathString.endsWith(".kt") && pathString.contains("/")) {
-                    String directory = pathString.substring(0, pathString.lastIndexOf("/"));
-                    repositoryDirectories.add(directory);
-                    //include sub-directories
-                    String subDirectory = directory;
-                    while (subDirectory.contains("/")) {
-                        subDirectory = subDirectory.substring(0, subDirectory.lastIndexOf("/"));
-                        repositoryDirectories.add(subDirectory);
+        try (ObjectReader reader = repository.newObjectReader()) {
+            if (!filePaths.isEmpty()) {
+                Set<String> filePathSet = new HashSet<>(filePaths);
+                try (TreeWalk treeWalk = new TreeWalk(repository, reader)) {
+                    treeWalk.addTree(parentTree);
+                    treeWalk.setRecursive(true);
+                    treeWalk.setFilter(PathFilterGroup.createFromStrings(filePathSet));
+                    while (treeWalk.next()) {
+                        String pathString = treeWalk.getPathString();
+                        if (filePathSet.contains(pathString)) {
+                            ObjectId objectId = treeWalk.getObjectId(0);
+                            ObjectLoader loader = reader.open(objectId);
+                            StringWriter writer = new StringWriter();
+                            IOUtils.copy(loader.openStream(), writer);
+                            fileContents.put(pathString, writer.toString());
+                            fileBlobIds.put(pathString, objectId.getName());
+                        }
                     }
                 }
             }
+            return directoryIndex.getDirectories(reader, parentTree);
         }
     }
 
+    /**
+     * Removes the files that keep their path and change only in whitespace and comments. The models of such files
+     * are the same as of the unchanged files, which are never parsed, so they cannot take part in a refactoring.
+     * The renamed files are kept, since their paths are used to detect moved classes.
+     */
+    static void removeFormattingChanges(Map<String, String> renamedFilesHint,
+                                        Map<String, String> fileContentsBefore,
+                                        Map<String, String> fileContentsCurrent,
+                                        Map<String, String> fileBlobIdsBefore,
+                                        Map<String, String> fileBlobIdsCurrent) {
+        Set<String> renamedFiles = new HashSet<>(renamedFilesHint.values());
+        renamedFiles.addAll(renamedFilesHint.keySet());
+        for (Iterator<Map.Entry<String, String>> i = fileContentsBefore.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<String, String> fileBefore = i.next();
+            String filePath = fileBefore.getKey();
+            String contentCurrent = fileContentsCurrent.get(filePath);
+            if (contentCurrent == null || renamedFiles.contains(filePath)) {
+                continue;
+            }
+            // The blobs are equal when only the file mode changed
+            if (Objects.equals(fileBlobIdsBefore.get(filePath), fileBlobIdsCurrent.get(filePath)) ||
+                KotlinTokenUtil.differOnlyInFormatting(fileBefore.getValue(), contentCurrent)) {
+                i.remove();
+                fileBlobIdsBefore.remove(filePath);
+                fileContentsCurrent.remove(filePath);
+                fileBlobIdsCurrent.remove(filePath);
+            }
+        }
+    }
+
+    /**
+     * @return The executor shared by the model diffs of all the commits, created on first use, or null if
+     * the operations are mapped on the threads of the commits.
+     */
+    private synchronized ExecutorService getMappingExecutor() {
+        if (mappingExecutor == null && mappingThreadCount > 1) {
+            mappingExecutor = Executors.newFixedThreadPool(mappingThreadCount);
+        }
+        return mappingExecutor;
+    }
+
+    private synchronized void shutdownMappingExecutor() {
+        if (mappingExecutor != null) {
+            mappingExecutor.shutdown();
+            mappingExecutor = null;
+        }
+    }
+
+    /**
+     * Releases the Kotlin environments and the mapping threads created by the miner.
+     */
+    @Override
+    public void dispose() {
+        shutdownMappingExecutor();
+        if (ownsEnvironmentPool) {
+            environmentPool.dispose();
+        }
+    }
+
+    private static class CommitResult {
+        private final String commitId;
+        private final List<Refactoring> refactorings;
+        private final boolean ktFilesChanged;
+        private final Exception exception;
+
+        private CommitResult(String commitId,
+                             List<Refactoring> refactorings,
+                             boolean ktFilesChanged,
+                             Exception exception) {
+            this.commitId = commitId;
+            this.refactorings = refactorings;
+            this.ktFilesChanged = ktFilesChanged;
+            this.exception = exception;
+        }
+    }
+
+    private static class DetectionStatistics {
+        private final AtomicInteger commitsCount = new AtomicInteger();
+        private final AtomicInteger errorCommitsCount = new AtomicInteger();
+        private final AtomicInteger refactoringsCount = new AtomicInteger();
+    }
+
     public static String extractCommitURL(String cloneURL, String commitId) {
         int indexOfDotGit = cloneURL.length();
         if (cloneURL.endsWith(".git")) {
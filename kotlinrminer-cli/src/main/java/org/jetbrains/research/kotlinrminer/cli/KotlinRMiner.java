@@ -1,13 +1,38 @@
 package org.jetbrains.research.kotlinrminer.cli;
 
 import org.eclipse.jgit.lib.Repository;
-import org.jetbrains.research.kotlinrminer.cli.util.JsonUtil;
+import org.jetbrains.research.kotlinrminer.cli.util.JsonCommitWriter;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
 public class KotlinRMiner {
+    private static int threadCount = 1;
+    private static int parsingThreadCount = 1;
+    private static int mappingThreadCount = 1;
+    private static String cacheDirectory;
+    private static int cacheSize = 500;
+    private static String outputFile;
+    private static boolean newlineDelimited;
+    private static boolean lazyBodies;
+
     public static void main(String[] args) throws Exception {
+        try {
+            args = extractOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + "\n");
+            printUsage();
+            return;
+        }
         if (args.length < 1) {
             System.out.println("Please, specify the arguments\n");
             printUsage();
@@ -39,25 +64,16 @@ public class KotlinRMiner {
         String folder = args[1];
         String commitId = args[2];
         GitService gitService = new GitService();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             OutputStream out = openOutput();
+             JsonCommitWriter writer = new JsonCommitWriter(out, newlineDelimited)) {
             String gitURL = repo.getConfig().getString("remote", "origin", "url");
-            GitHistoryKotlinRMiner detector = new GitHistoryKotlinRMiner();
-            StringBuilder sb = new StringBuilder();
-            JsonUtil.startJSON(sb);
-            detector.detectAtCommit(repo, commitId, new RefactoringHandler() {
-                @Override
-                public void handle(String commitId, List<Refactoring> refactorings, boolean ktFilesChanged) {
-                    JsonUtil.commitJSON(sb, gitURL, commitId, refactorings, ktFilesChanged);
-                }
-
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
-                }
-            });
-            JsonUtil.endJSON(sb);
-            System.out.println(sb);
+            GitHistoryKotlinRMiner detector = createDetector();
+            try {
+                detector.detectAtCommit(repo, commitId, createHandler(writer, gitURL));
+            } finally {
+                detector.dispose();
+            }
         }
     }
 
@@ -74,37 +90,16 @@ public class KotlinRMiner {
             branch = args[2];
         }
         GitService gitService = new GitService();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             OutputStream out = openOutput();
+             JsonCommitWriter writer = new JsonCommitWriter(out, newlineDelimited)) {
             String gitURL = repo.getConfig().getString("remote", "origin", "url");
-            GitHistoryKotlinRMiner detector = new GitHistoryKotlinRMiner();
-            StringBuilder sb = new StringBuilder();
-            JsonUtil.startJSON(sb);
-            detector.detectAll(repo, branch, new RefactoringHandler() {
-                private int commitCount = 0;
-
-                @Override
-                public void handle(String commitId, List<Refactoring> refactorings, boolean ktFilesChanged) {
-                    if (commitCount > 0) {
-                        sb.append(",").append("\n");
-                    }
-                    JsonUtil.commitJSON(sb, gitURL, commitId, refactorings, ktFilesChanged);
-                    commitCount++;
-                }
-
-                @Override
-                public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-                    System.out.printf("Total count: [Commits: %d, Errors: %d, Refactorings: %d]%n",
-                        commitsCount, errorCommitsCount, refactoringsCount);
-                }
-
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
-                }
-            });
-            JsonUtil.endJSON(sb);
-            System.out.println(sb);
+            GitHistoryKotlinRMiner detector = createDetector();
+            try {
+                detector.detectAll(repo, branch, createHandler(writer, gitURL));
+            } finally {
+                detector.dispose();
+            }
         }
     }
 
@@ -119,38 +114,135 @@ public class KotlinRMiner {
         String startCommit = args[2];
         String endCommit = (args.length == 4) ? args[3] : null;
         GitService gitService = new GitService();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             OutputStream out = openOutput();
+             JsonCommitWriter writer = new JsonCommitWriter(out, newlineDelimited)) {
             String gitURL = repo.getConfig().getString("remote", "origin", "url");
-            GitHistoryKotlinRMiner detector = new GitHistoryKotlinRMiner();
-            StringBuilder sb = new StringBuilder();
-            JsonUtil.startJSON(sb);
-            detector.detectBetweenCommits(repo, startCommit, endCommit, new RefactoringHandler() {
-                private int commitCount = 0;
-
-                @Override
-                public void handle(String commitId, List<Refactoring> refactorings, boolean ktFilesChanged) {
-                    if (commitCount > 0) {
-                        sb.append(",").append("\n");
-                    }
-                    JsonUtil.commitJSON(sb, gitURL, commitId, refactorings, ktFilesChanged);
-                    commitCount++;
-                }
+            GitHistoryKotlinRMiner detector = createDetector();
+            try {
+                detector.detectBetweenCommits(repo, startCommit, endCommit, createHandler(writer, gitURL));
+            } finally {
+                detector.dispose();
+            }
+        }
+    }
 
-                @Override
-                public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-                    System.out.printf("Total count: [Commits: %d, Errors: %d, Refactorings: %d]%n",
-                        commitsCount, errorCommitsCount, refactoringsCount);
-                }
+    private static GitHistoryKotlinRMiner createDetector() {
+        GitHistoryKotlinRMiner detector = new GitHistoryKotlinRMiner();
+        detector.setThreadCount(threadCount);
+        detector.setParsingThreadCount(parsingThreadCount);
+        detector.setMappingThreadCount(mappingThreadCount);
+        detector.setLazyBodies(lazyBodies);
+        if (cacheDirectory != null) {
+            detector.setModelCache(
+                new UMLModelCache(cacheSize, new UMLModelDiskStore(new File(cacheDirectory))));
+        }
+        return detector;
+    }
 
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
+    /**
+     * Creates the handler that writes every analyzed commit to the output as soon as it is available.
+     */
+    private static RefactoringHandler createHandler(JsonCommitWriter writer, String gitURL) {
+        return new RefactoringHandler() {
+            @Override
+            public void handle(String commitId, List<Refactoring> refactorings, boolean ktFilesChanged) {
+                try {
+                    writer.writeCommit(gitURL, commitId, refactorings, ktFilesChanged);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            });
-            JsonUtil.endJSON(sb);
-            System.out.println(sb);
+            }
+
+            @Override
+            public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+                System.err.printf("Total count: [Commits: %d, Errors: %d, Refactorings: %d]%n",
+                    commitsCount, errorCommitsCount, refactoringsCount);
+            }
+
+            @Override
+            public void handleException(String commit, Exception e) {
+                System.err.println("Error processing commit " + commit);
+                e.printStackTrace(System.err);
+            }
+        };
+    }
+
+    /**
+     * @return The output file if it is specified, or the standard output, which is not closed with the stream.
+     */
+    private static OutputStream openOutput() throws IOException {
+        if (outputFile != null) {
+            return new BufferedOutputStream(new FileOutputStream(outputFile));
         }
+        return new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Removes the optional "-threads <n>", "-parsing-threads <n>", "-mapping-threads <n>", "-cache <dir>",
+     * "-cache-size <n>", "-o <file>", "-ndjson" and "-lazy-bodies" arguments and remembers their values.
+     *
+     * @throws IllegalArgumentException if an option has no value or a count is not a positive number.
+     */
+    private static String[] extractOptions(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        String threads = extractOption(arguments, "-threads");
+        if (threads != null) {
+            threadCount = parsePositiveNumber("-threads", threads);
+        }
+        String parsingThreads = extractOption(arguments, "-parsing-threads");
+        if (parsingThreads != null) {
+            parsingThreadCount = parsePositiveNumber("-parsing-threads", parsingThreads);
+        }
+        String mappingThreads = extractOption(arguments, "-mapping-threads");
+        if (mappingThreads != null) {
+            mappingThreadCount = parsePositiveNumber("-mapping-threads", mappingThreads);
+        }
+        cacheDirectory = extractOption(arguments, "-cache");
+        String cacheFiles = extractOption(arguments, "-cache-size");
+        if (cacheFiles != null) {
+            cacheSize = parsePositiveNumber("-cache-size", cacheFiles);
+        }
+        outputFile = extractOption(arguments, "-o");
+        newlineDelimited = arguments.remove("-ndjson");
+        lazyBodies = arguments.remove("-lazy-bodies");
+        return arguments.toArray(new String[0]);
+    }
+
+    private static String extractOption(List<String> arguments, String option) {
+        int index = arguments.indexOf(option);
+        if (index < 0) {
+            return null;
+        }
+        if (index + 1 >= arguments.size()) {
+            throw new IllegalArgumentException("Missing value of the " + option + " option.");
+        }
+        String value = arguments.get(index + 1);
+        arguments.subList(index, index + 2).clear();
+        return value;
+    }
+
+    private static int parsePositiveNumber(String option, String value) {
+        int count;
+        try {
+            count = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("Incorrect value of the " + option + " option: " + value + ".");
+        }
+        return count;
     }
 
     private static void printUsage() {
@@ -164,5 +256,23 @@ public class KotlinRMiner {
         System.out.println(
             "-all <git-repo-folder> <branch>\t\t\t\t\tDetect all refactorings at the <branch> for <git-repo-folder>. " +
                 "If <branch> is not specified, commits from master branch are analyzed.");
+        System.out.println(
+            "-threads <n>\t\t\t\t\t\t\tAnalyze commits with <n> threads when used with -all or -bc.");
+        System.out.println(
+            "-parsing-threads <n>\t\t\t\t\t\tParse the changed files of every commit with <n> threads.");
+        System.out.println(
+            "-mapping-threads <n>\t\t\t\t\t\tMap the operation bodies with <n> threads shared by all commits.");
+        System.out.println(
+            "-cache <dir>\t\t\t\t\t\t\tKeep parsed files in <dir> and reuse them in later runs.");
+        System.out.println(
+            "-cache-size <n>\t\t\t\t\t\t\tKeep up to <n> parsed files in memory when used with -cache " +
+                "(500 by default).");
+        System.out.println(
+            "-o <file>\t\t\t\t\t\t\tWrite the results to <file> instead of the standard output.");
+        System.out.println(
+            "-ndjson\t\t\t\t\t\t\t\tWrite every commit as a separate JSON object on its own line.");
+        System.out.println(
+            "-lazy-bodies\t\t\t\t\t\t\tDecompose the operation bodies only when they are compared, " +
+                "without -cache.");
     }
 }
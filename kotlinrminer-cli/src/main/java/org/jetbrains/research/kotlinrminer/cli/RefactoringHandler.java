@@ -18,6 +18,17 @@ public abstract class RefactoringHandler {
         return false;
     }
 
+    /**
+     * Indicates whether the callbacks may be called concurrently when commits are analyzed by several threads.
+     * By default, they are called from a single thread in the order of the commits.
+     * You may override this method to receive the results of each commit as soon as it is analyzed.
+     *
+     * @return True if the handler is thread-safe and does not depend on the order of commits, false otherwise.
+     */
+    public boolean isConcurrent() {
+        return false;
+    }
+
     /**
      * This method is called after each commit is analyzed.
      * You should override this method to do your custom logic with the list of detected refactorings.
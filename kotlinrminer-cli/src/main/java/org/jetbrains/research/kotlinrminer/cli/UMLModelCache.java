@@ -0,0 +1,148 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLModel;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the models of single files, keyed by the id of the git blob and the path of the file,
+ * so that a file version shared by consecutive commits is parsed only once.
+ * The least recently used models are evicted when the cache is full.
+ * Optionally, the models are also kept in a {@link UMLModelDiskStore} to be reused by later runs.
+ */
+public class UMLModelCache {
+    private final int maxEntries;
+    private final Map<Key, UMLModel> fileModels;
+    private final UMLModelDiskStore diskStore;
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private boolean storeFailureReported;
+
+    /**
+     * @param maxEntries The maximum number of file models kept in the cache.
+     */
+    public UMLModelCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * @param maxEntries The maximum number of file models kept in memory.
+     * @param diskStore  The store to look up the models missing in memory and to save the new models to.
+     */
+    public UMLModelCache(int maxEntries, UMLModelDiskStore diskStore) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.diskStore = diskStore;
+        this.fileModels = new LinkedHashMap<Key, UMLModel>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, UMLModel> eldest) {
+                return size() > UMLModelCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return The model of the file with the given blob id and path, or null if it is not cached.
+     */
+    public UMLModel get(String blobId, String filePath) {
+        Key key = new Key(blobId, filePath);
+        synchronized (this) {
+            UMLModel fileModel = fileModels.get(key);
+            if (fileModel != null) {
+                hits++;
+                return fileModel;
+            }
+        }
+        UMLModel storedModel = diskStore != null ? diskStore.load(blobId, filePath) : null;
+        synchronized (this) {
+            if (storedModel != null) {
+                diskHits++;
+                fileModels.put(key, storedModel);
+            } else {
+                misses++;
+            }
+        }
+        return storedModel;
+    }
+
+    public void put(String blobId, String filePath, UMLModel fileModel) {
+        synchronized (this) {
+            fileModels.put(new Key(blobId, filePath), fileModel);
+        }
+        if (diskStore != null) {
+            try {
+                diskStore.store(blobId, filePath, fileModel);
+            } catch (IOException e) {
+                // The model stays cached in memory, and the file is parsed again by the next run
+                reportStoreFailure(e);
+            }
+        }
+    }
+
+    /**
+     * Reports the first model that cannot be stored, since the following ones usually fail for the same reason.
+     */
+    private void reportStoreFailure(IOException e) {
+        synchronized (this) {
+            if (storeFailureReported) {
+                return;
+            }
+            storeFailureReported = true;
+        }
+        System.err.println("Warning: cannot store parsed files in the cache directory, " +
+            "they will be parsed again by later runs: " + e);
+    }
+
+    public synchronized int size() {
+        return fileModels.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        fileModels.clear();
+    }
+
+    private static class Key {
+        private final String blobId;
+        private final String filePath;
+
+        private Key(String blobId, String filePath) {
+            this.blobId = blobId;
+            this.filePath = filePath;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return blobId.equals(key.blobId) && filePath.equals(key.filePath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(blobId, filePath);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLClass;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLFile;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLGeneralization;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLModel;
+import org.jetbrains.research.kotlinrminer.cli.util.ModelSerialization;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stores the models of single files in a local directory, so that repeated runs over the same repository
+ * do not parse unchanged files again. Every model is kept in a separate compressed file, named after the hash of
+ * the git blob id, the file path and the parser version. Operation bodies are deserialized on their first use.
+ * The parser version is the hash of the bytecode of the parser classes found by {@link ModelSerialization},
+ * so the entries of a changed parser are never read.
+ */
+public class UMLModelDiskStore {
+    private static final int MAGIC = 0x4B524D43;
+    private static final int FORMAT_VERSION = 2;
+    private final File directory;
+    private final String parserVersion;
+
+    public UMLModelDiskStore(File directory) {
+        this(directory, computeParserVersion());
+    }
+
+    UMLModelDiskStore(File directory, String parserVersion) {
+        this.directory = directory;
+        this.parserVersion = parserVersion;
+    }
+
+    /**
+     * @return The stored model of the file, or null if there is no readable model for this parser version.
+     */
+    public UMLModel load(String blobId, String filePath) {
+        File entry = entryFile(blobId, filePath);
+        if (!entry.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            ObjectInputStream objects =
+                ModelSerialization.newInputStream(new BufferedInputStream(new InflaterInputStream(in)));
+            if (!filePath.equals(objects.readObject())) {
+                return null;
+            }
+            UMLModel fileModel = new UMLModel(Collections.emptySet());
+            for (Object umlClass : (List<?>) objects.readObject()) {
+                fileModel.addClass((UMLClass) umlClass);
+            }
+            for (Object generalization : (List<?>) objects.readObject()) {
+                fileModel.addGeneralization((UMLGeneralization) generalization);
+            }
+            for (Object umlFile : (List<?>) objects.readObject()) {
+                fileModel.addFile((UMLFile) umlFile);
+            }
+            return fileModel;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // A damaged or outdated entry is treated as a missing one and is overwritten after parsing
+            return null;
+        }
+    }
+
+    public void store(String blobId, String filePath, UMLModel fileModel) throws IOException {
+        File entry = entryFile(blobId, filePath);
+        File entryDirectory = entry.getParentFile();
+        Files.createDirectories(entryDirectory.toPath());
+        File temporaryFile = File.createTempFile(entry.getName(), ".tmp", entryDirectory);
+        try {
+            try (DataOutputStream out =
+                     new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                DeflaterOutputStream compressed = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED));
+                ObjectOutputStream objects = ModelSerialization.newOutputStream(new BufferedOutputStream(compressed));
+                objects.writeObject(filePath);
+                objects.writeObject(new ArrayList<>(fileModel.getClassList()));
+                objects.writeObject(new ArrayList<>(fileModel.getGeneralizationList()));
+                objects.writeObject(new ArrayList<>(fileModel.getFileList()));
+                objects.flush();
+                compressed.finish();
+            }
+            Files.move(temporaryFile.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    public String getParserVersion() {
+        return parserVersion;
+    }
+
+    private File entryFile(String blobId, String filePath) {
+        String hash = sha1(parserVersion + '\0' + blobId + '\0' + filePath);
+        return new File(new File(directory, hash.substring(0, 2)), hash.substring(2));
+    }
+
+    private static String computeParserVersion() {
+        MessageDigest digest = newSha1Digest();
+        digest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[8192];
+        for (Class<?> parserClass : ModelSerialization.getParserClasses()) {
+            String className = parserClass.getName();
+            digest.update(className.getBytes(StandardCharsets.UTF_8));
+            String classFile = className.substring(className.lastIndexOf('.') + 1) + ".class";
+            try (InputStream in = parserClass.getResourceAsStream(classFile)) {
+                if (in != null) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String sha1(String text) {
+        return toHex(newSha1Digest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newSha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
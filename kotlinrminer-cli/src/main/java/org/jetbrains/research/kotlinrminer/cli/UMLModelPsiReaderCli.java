@@ -5,12 +5,18 @@ import static org.jetbrains.kotlin.lexer.KtTokens.PRIVATE_KEYWORD;
 import static org.jetbrains.kotlin.lexer.KtTokens.PROTECTED_KEYWORD;
 import static org.jetbrains.kotlin.lexer.KtTokens.PUBLIC_KEYWORD;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment;
-import org.jetbrains.kotlin.com.intellij.openapi.util.io.FileUtilRt;
+import org.jetbrains.kotlin.com.intellij.openapi.util.TextRange;
 import org.jetbrains.kotlin.com.intellij.openapi.vfs.CharsetToolkit;
 import org.jetbrains.kotlin.com.intellij.psi.PsiElement;
 import org.jetbrains.kotlin.com.intellij.psi.PsiFile;
@@ -38,10 +44,10 @@ import org.jetbrains.kotlin.psi.KtProperty;
 import org.jetbrains.kotlin.psi.KtSuperTypeListEntry;
 import org.jetbrains.kotlin.psi.KtTypeParameter;
 import org.jetbrains.kotlin.psi.KtTypeReference;
-import org.jetbrains.research.kotlinrminer.cli.util.EnvironmentManager;
 import org.jetbrains.research.kotlinrminer.cli.decomposition.LocationInfo;
 import org.jetbrains.research.kotlinrminer.cli.decomposition.OperationBody;
 import org.jetbrains.research.kotlinrminer.cli.decomposition.VariableDeclaration;
+import org.jetbrains.research.kotlinrminer.cli.util.KotlinEnvironmentPool;
 import org.jetbrains.research.kotlinrminer.cli.util.KotlinLightVirtualFile;
 import org.jetbrains.research.kotlinrminer.cli.uml.*;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
@@ -50,47 +56,195 @@ import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
  * Parses and processes the files written in Kotlin.
  */
 public class UMLModelPsiReaderCli {
+    private static final AtomicLong parsedFileCount = new AtomicLong();
     private final UMLModel umlModel;
+    private final KotlinEnvironmentPool environmentPool;
+    private int threadCount = 1;
+    private UMLModelCache modelCache;
+    private boolean lazyBodies;
+    private LazyFileBodies fileBodies;
 
     public UMLModelPsiReaderCli(Set<String> repositoryDirectories) {
+        this(repositoryDirectories, null);
+    }
+
+    /**
+     * @param environmentPool The pool to take the Kotlin environment from. If null, a temporary environment is
+     *                        created for each {@link #parseFiles(Map)} call.
+     */
+    public UMLModelPsiReaderCli(Set<String> repositoryDirectories, KotlinEnvironmentPool environmentPool) {
         this.umlModel = new UMLModel(repositoryDirectories);
+        this.environmentPool = environmentPool;
+    }
+
+    /**
+     * Sets the number of threads that parse the files of a single {@link #parseFiles(Map)} call.
+     * Each thread parses with its own environment, and the results are merged in the order of the files in the map,
+     * so the model is the same as the one built by a single thread.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be positive: " + threadCount);
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Sets the cache of single file models. Files with a cached model are not parsed again.
+     */
+    public void setModelCache(UMLModelCache modelCache) {
+        this.modelCache = modelCache;
+    }
+
+    /**
+     * Sets whether the bodies of operations are decomposed only when they are used for the first time.
+     * The PSI is not kept after parsing, since its environment goes back to the pool. Instead, the file is parsed
+     * again under a new lease when the first of its bodies is used, so the environment pool of the reader must not
+     * be disposed before the model is no longer used. The models stored in the model cache are always built eagerly.
+     */
+    public void setLazyBodies(boolean lazyBodies) {
+        if (lazyBodies && environmentPool == null) {
+            throw new IllegalStateException("Lazy bodies require an environment pool that outlives the model");
+        }
+        this.lazyBodies = lazyBodies;
     }
 
     public void parseFiles(Map<String, String> kotlinFileContents) throws IOException {
-        for (String filePath : kotlinFileContents.keySet()) {
-            KtFile ktFile = (KtFile) buildPsiFile(filePath, EnvironmentManager.createKotlinCoreEnvironment(new HashSet<>()),
-                kotlinFileContents.get(filePath));
-            List<String> importedTypes = processImports(ktFile);
-            PsiElement[] elementsInFile = ktFile.getChildren();
-            List<KtNamedFunction> packageLevelFunctions = new ArrayList<>();
-            for (PsiElement psiElement : elementsInFile) {
-                if (psiElement instanceof KtObjectDeclaration) {
-                    KtObjectDeclaration objectDeclaration = (KtObjectDeclaration) psiElement;
-                    processObject(objectDeclaration,
-                        filePath);
-                } else if (psiElement instanceof KtClass) {
-                    KtClass ktClass = (KtClass) psiElement;
-                    if (ktClass.isEnum()) {
-                        processKtEnum(ktClass, ktFile.getPackageFqName().asString(), filePath,
-                            importedTypes);
-                    } else {
-                        processKtClass(ktClass, ktFile.getPackageFqName().asString(), filePath,
-                            importedTypes);
+        parseFiles(kotlinFileContents, Collections.emptyMap());
+    }
+
+    /**
+     * @param fileBlobIds The ids of the git blobs with the file contents, used as the keys of the model cache.
+     *                    Files without a blob id are always parsed.
+     */
+    public void parseFiles(Map<String, String> kotlinFileContents, Map<String, String> fileBlobIds) throws IOException {
+        KotlinEnvironmentPool pool = environmentPool != null ? environmentPool : new KotlinEnvironmentPool(threadCount);
+        try {
+            if (threadCount > 1 && kotlinFileContents.size() > 1) {
+                parseFilesInParallel(kotlinFileContents, fileBlobIds, pool);
+            } else {
+                try (KotlinEnvironmentPool.Lease lease = pool.acquire(Collections.emptySet())) {
+                    for (String filePath : kotlinFileContents.keySet()) {
+                        if (modelCache == null) {
+                            parseFile(filePath, kotlinFileContents.get(filePath), lease.getEnvironment());
+                        } else {
+                            umlModel.addAll(parseFileModel(filePath, kotlinFileContents.get(filePath),
+                                fileBlobIds.get(filePath), lease.getEnvironment()));
+                        }
                     }
-                } else if (psiElement instanceof KtNamedFunction) {
-                    packageLevelFunctions.add((KtNamedFunction) psiElement);
                 }
             }
-            if (packageLevelFunctions.size() > 0) {
-                processPackageLevelFunctions(ktFile, packageLevelFunctions, filePath);
+        } finally {
+            if (pool != environmentPool) {
+                pool.dispose();
+            }
+        }
+    }
+
+    /**
+     * Parses every file into a separate partial model and merges the partial models in the order of the files.
+     */
+    private void parseFilesInParallel(Map<String, String> kotlinFileContents,
+                                      Map<String, String> fileBlobIds,
+                                      KotlinEnvironmentPool pool) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, kotlinFileContents.size()));
+        try {
+            List<Future<UMLModel>> partialModels = new ArrayList<>();
+            for (Map.Entry<String, String> fileContent : kotlinFileContents.entrySet()) {
+                partialModels.add(executor.submit(() -> {
+                    try (KotlinEnvironmentPool.Lease lease = pool.acquire(Collections.emptySet())) {
+                        return parseFileModel(fileContent.getKey(), fileContent.getValue(),
+                            fileBlobIds.get(fileContent.getKey()), lease.getEnvironment());
+                    }
+                }));
+            }
+            for (Future<UMLModel> partialModel : partialModels) {
+                umlModel.addAll(awaitPartialModel(partialModel));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the partial model of a single file, or takes it from the model cache.
+     */
+    private UMLModel parseFileModel(String filePath,
+                                    String fileContent,
+                                    String blobId,
+                                    KotlinCoreEnvironment environment) {
+        boolean cacheable = modelCache != null && blobId != null;
+        if (cacheable) {
+            UMLModel cachedModel = modelCache.get(blobId, filePath);
+            if (cachedModel != null) {
+                return cachedModel;
+            }
+        }
+        UMLModelPsiReaderCli fileReader = new UMLModelPsiReaderCli(Collections.emptySet(), environmentPool);
+        fileReader.lazyBodies = lazyBodies && !cacheable;
+        fileReader.parseFile(filePath, fileContent, environment);
+        UMLModel fileModel = fileReader.getUmlModel();
+        if (cacheable) {
+            modelCache.put(blobId, filePath, fileModel);
+        }
+        return fileModel;
+    }
+
+    private static UMLModel awaitPartialModel(Future<UMLModel> partialModel) throws IOException {
+        try {
+            return partialModel.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing files");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
+            throw new IllegalStateException(cause);
         }
     }
 
+    private void parseFile(String filePath, String fileContent, KotlinCoreEnvironment environment) {
+        KtFile ktFile = (KtFile) buildPsiFile(filePath, environment, fileContent);
+        fileBodies = lazyBodies ? new LazyFileBodies(filePath, fileContent, environmentPool) : null;
+        List<String> importedTypes = processImports(ktFile);
+        PsiElement[] elementsInFile = ktFile.getChildren();
+        List<KtNamedFunction> packageLevelFunctions = new ArrayList<>();
+        for (PsiElement psiElement : elementsInFile) {
+            if (psiElement instanceof KtObjectDeclaration) {
+                KtObjectDeclaration objectDeclaration = (KtObjectDeclaration) psiElement;
+                processObject(objectDeclaration,
+                    filePath);
+            } else if (psiElement instanceof KtClass) {
+                KtClass ktClass = (KtClass) psiElement;
+                if (ktClass.isEnum()) {
+                    processKtEnum(ktClass, ktFile.getPackageFqName().asString(), filePath,
+                        importedTypes);
+                } else {
+                    processKtClass(ktClass, ktFile.getPackageFqName().asString(), filePath,
+                        importedTypes);
+                }
+            } else if (psiElement instanceof KtNamedFunction) {
+                packageLevelFunctions.add((KtNamedFunction) psiElement);
+            }
+        }
+        if (packageLevelFunctions.size() > 0) {
+            processPackageLevelFunctions(ktFile, packageLevelFunctions, filePath);
+        }
+        fileBodies = null;
+    }
+
     private void processPackageLevelFunctions(KtFile ktFile, List<KtNamedFunction> packageLevelFunctions,
                                               String filePath) {
         UMLFile umlFile = new UMLFile(filePath);
-        LocationInfo locationInfo = generateLocationInfo(ktFile, ktFile.getVirtualFilePath(), ktFile,
+        LocationInfo locationInfo = generateLocationInfo(ktFile, filePath, ktFile,
             CodeElementType.TYPE_DECLARATION);
         umlFile.setLocationInfo(locationInfo);
         for (KtNamedFunction function : packageLevelFunctions) {
@@ -307,10 +461,16 @@ public class UMLModelPsiReaderCli {
         if (methodBody != null) {
             CodeElementType elementType = methodDeclaration.hasBlockBody() ?
                 CodeElementType.BLOCK : CodeElementType.EXPRESSION_STATEMENT;
-            OperationBody body = new OperationBody(ktFile.getContainingKtFile(), filePath, methodBody, elementType);
-            umlOperation.setBody(body);
-            if (body.isEmpty()) {
-                umlOperation.setEmptyBody(true);
+            if (fileBodies != null) {
+                umlOperation.setLazyBody(fileBodies.add(methodBody, elementType));
+                umlOperation.setEmptyBody(!OperationBody.hasStatements(methodBody));
+            } else {
+                OperationBody body =
+                    new OperationBody(ktFile.getContainingKtFile(), filePath, methodBody, elementType);
+                umlOperation.setBody(body);
+                if (body.isEmpty()) {
+                    umlOperation.setEmptyBody(true);
+                }
             }
         } else {
             umlOperation.setBody(null);
@@ -398,11 +558,19 @@ public class UMLModelPsiReaderCli {
         return visibility;
     }
 
-    public PsiFile buildPsiFile(String file, KotlinCoreEnvironment environment, String content) throws IOException {
-        File newFile = new File("tmp/" + file);
-        FileUtilRt.createDirectory(newFile);
+    /**
+     * Creates the PSI of the file from its content in memory, without touching the disk.
+     *
+     * @param file The path of the file relative to the repository root.
+     */
+    public PsiFile buildPsiFile(String file, KotlinCoreEnvironment environment, String content) {
+        return createPsiFile(file, environment, content);
+    }
+
+    private static PsiFile createPsiFile(String file, KotlinCoreEnvironment environment, String content) {
+        parsedFileCount.incrementAndGet();
         PsiFileFactoryImpl factory = (PsiFileFactoryImpl) PsiFileFactory.getInstance(environment.getProject());
-        KotlinLightVirtualFile virtualFile = new KotlinLightVirtualFile(newFile, content);
+        KotlinLightVirtualFile virtualFile = new KotlinLightVirtualFile(file, content);
         virtualFile.setCharset(CharsetToolkit.UTF8_CHARSET);
         return factory.trySetupPsiForFile(virtualFile, KotlinLanguage.INSTANCE, true, false);
     }
@@ -411,6 +579,13 @@ public class UMLModelPsiReaderCli {
         return this.umlModel;
     }
 
+    /**
+     * @return The number of PSI files created by all readers so far, including the ones parsed for lazy bodies.
+     */
+    static long getParsedFileCount() {
+        return parsedFileCount.get();
+    }
+
     private LocationInfo generateLocationInfo(KtFile ktFile,
                                               String sourceFile,
                                               KtElement node,
@@ -418,4 +593,64 @@ public class UMLModelPsiReaderCli {
         return new LocationInfo(ktFile, sourceFile, node, codeElementType);
     }
 
-}
\ No newline at end of file
+
+    /**
+     * The lazy bodies of the operations of a single file. When the first of them is used, the file is parsed again
+     * under a new lease of the environment pool, and the bodies of all its lazy operations are built from that parse,
+     * so that a file is parsed at most twice and no PSI outlives its lease.
+     */
+    private static class LazyFileBodies {
+        private final String filePath;
+        private final KotlinEnvironmentPool environmentPool;
+        private final Map<TextRange, CodeElementType> bodyTypes = new LinkedHashMap<>();
+        private String fileContent;
+        private Map<TextRange, OperationBody> bodies;
+
+        private LazyFileBodies(String filePath, String fileContent, KotlinEnvironmentPool environmentPool) {
+            this.filePath = filePath;
+            this.fileContent = fileContent;
+            this.environmentPool = environmentPool;
+        }
+
+        private Supplier<OperationBody> add(KtExpression methodBody, CodeElementType elementType) {
+            TextRange range = methodBody.getTextRange();
+            bodyTypes.put(range, elementType);
+            return () -> get(range);
+        }
+
+        private synchronized OperationBody get(TextRange range) {
+            if (bodies == null) {
+                bodies = buildBodies();
+                bodyTypes.clear();
+                fileContent = null;
+            }
+            return bodies.remove(range);
+        }
+
+        private Map<TextRange, OperationBody> buildBodies() {
+            Map<TextRange, OperationBody> builtBodies = new HashMap<>();
+            try (KotlinEnvironmentPool.Lease lease = environmentPool.acquire(Collections.emptySet())) {
+                KtFile ktFile = (KtFile) createPsiFile(filePath, lease.getEnvironment(), fileContent);
+                for (Map.Entry<TextRange, CodeElementType> bodyType : bodyTypes.entrySet()) {
+                    KtExpression methodBody = findMethodBody(ktFile, bodyType.getKey());
+                    builtBodies.put(bodyType.getKey(),
+                        new OperationBody(ktFile, filePath, methodBody, bodyType.getValue()));
+                }
+            }
+            return builtBodies;
+        }
+
+        private KtExpression findMethodBody(KtFile ktFile, TextRange range) {
+            for (PsiElement element = ktFile.findElementAt(range.getStartOffset()); element != null;
+                 element = element.getParent()) {
+                if (element instanceof KtNamedFunction) {
+                    KtExpression methodBody = ((KtNamedFunction) element).getBodyExpression();
+                    if (methodBody != null && methodBody.getTextRange().equals(range)) {
+                        return methodBody;
+                    }
+                }
+            }
+            throw new IllegalStateException("No operation body at " + range + " of " + filePath);
+        }
+    }
+}
@@ -5,9 +5,10 @@ import org.jetbrains.research.kotlinrminer.cli.diff.CodeRange;
 import org.jetbrains.research.kotlinrminer.cli.diff.UMLClassBaseDiff;
 import org.jetbrains.research.kotlinrminer.cli.util.ReplacementUtil;
 
+import java.io.Serializable;
 import java.util.*;
 
-public abstract class AbstractCall implements LocationInfoProvider {
+public abstract class AbstractCall implements LocationInfoProvider, Serializable {
     protected int typeArguments;
     protected String expression;
     protected List<String> arguments;
@@ -2,21 +2,14 @@ package org.jetbrains.research.kotlinrminer.cli.decomposition;
 
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-public abstract class AbstractCodeFragment implements LocationInfoProvider {
+public abstract class AbstractCodeFragment implements LocationInfoProvider, Serializable {
     private int depth;
     private int index;
-    private String codeFragmentAfterReplacingParametersWithArguments;
-
-    public String getArgumentizedString() {
-        return codeFragmentAfterReplacingParametersWithArguments != null ?
-            codeFragmentAfterReplacingParametersWithArguments : getString();
-    }
 
     public int getDepth() {
         return depth;
@@ -78,45 +71,47 @@ public abstract class AbstractCodeFragment implements LocationInfoProvider {
 
     public abstract VariableDeclaration getVariableDeclaration(String variableName);
 
-    public void replaceParametersWithArguments(Map<String, String> parameterToArgumentMap) {
+    /**
+     * @return The string of the fragment after replacing the parameters with the arguments of the map.
+     */
+    public String replaceParametersWithArguments(Map<String, String> parameterToArgumentMap) {
         String afterReplacements = getString();
         for (String parameter : parameterToArgumentMap.keySet()) {
             String argument = parameterToArgumentMap.get(parameter);
             if (!parameter.equals(argument)) {
-                StringBuffer sb = new StringBuffer();
-                Pattern p = Pattern.compile(Pattern.quote(parameter));
-                Matcher m = p.matcher(afterReplacements);
-                while (m.find()) {
+                StringBuilder sb = new StringBuilder();
+                int appendPosition = 0;
+                int start = afterReplacements.indexOf(parameter);
+                while (start != -1) {
                     //check if the matched string is an argument
                     //previous character should be "(" or "," or " " or there is no previous character
-                    int start = m.start();
+                    int end = start + parameter.length();
                     boolean isArgument = false;
                     boolean isInsideStringLiteral = false;
                     if (start >= 1) {
-                        String previousChar = afterReplacements.substring(start - 1, start);
-                        if (previousChar.equals("(") || previousChar.equals(",") || previousChar.equals(
-                            " ") || previousChar.equals("=")) {
+                        char previousChar = afterReplacements.charAt(start - 1);
+                        if (previousChar == '(' || previousChar == ',' || previousChar == ' ' ||
+                            previousChar == '=') {
                             isArgument = true;
                         }
-                        String beforeMatch = afterReplacements.substring(0, start);
-                        String afterMatch =
-                            afterReplacements.substring(start + parameter.length());
-
-                        if (quoteBefore(beforeMatch) && quoteAfter(afterMatch)) {
+                        if (quoteBefore(afterReplacements, start) && quoteAfter(afterReplacements, end)) {
                             isInsideStringLiteral = true;
                         }
                     } else if (start == 0 && !afterReplacements.startsWith("return ")) {
                         isArgument = true;
                     }
                     if (isArgument && !isInsideStringLiteral) {
-                        m.appendReplacement(sb, Matcher.quoteReplacement(argument));
+                        sb.append(afterReplacements, appendPosition, start).append(argument);
+                        appendPosition = end;
                     }
+                    int next = start + Math.max(parameter.length(), 1);
+                    start = next > afterReplacements.length() ? -1 : afterReplacements.indexOf(parameter, next);
                 }
-                m.appendTail(sb);
+                sb.append(afterReplacements, appendPosition, afterReplacements.length());
                 afterReplacements = sb.toString();
             }
         }
-        this.codeFragmentAfterReplacingParametersWithArguments = afterReplacements;
+        return afterReplacements;
     }
 
 
@@ -157,51 +152,30 @@ public abstract class AbstractCodeFragment implements LocationInfoProvider {
         return null;
     }
 
-    private static boolean quoteBefore(String beforeMatch) {
-        if (beforeMatch.contains("\"")) {
-            if (beforeMatch.contains("+")) {
-                int indexOfQuote = beforeMatch.lastIndexOf("\"");
-                int indexOfPlus = beforeMatch.lastIndexOf("+");
-                return indexOfPlus <= indexOfQuote;
-            } else {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean quoteAfter(String afterMatch) {
-        if (afterMatch.contains("\"")) {
-            if (afterMatch.contains("+")) {
-                int indexOfQuote = afterMatch.indexOf("\"");
-                int indexOfPlus = afterMatch.indexOf("+");
-                return indexOfPlus >= indexOfQuote;
-            } else {
-                return true;
-            }
+    /**
+     * @return True if the last quote before the index comes after any concatenation.
+     */
+    private static boolean quoteBefore(String s, int index) {
+        int indexOfQuote = s.lastIndexOf('"', index - 1);
+        if (indexOfQuote != -1) {
+            int indexOfPlus = s.lastIndexOf('+', index - 1);
+            return indexOfPlus <= indexOfQuote;
         }
         return false;
     }
 
-    public boolean equalFragment(AbstractCodeFragment other) {
-        if (this.getString().equals(other.getString())) {
-            return true;
-        } else if (this.getString().contains(other.getString())) {
-            return true;
-        } else if (other.getString().contains(this.getString())) {
-            return true;
-        } else if (this.codeFragmentAfterReplacingParametersWithArguments != null) {
-            return this.codeFragmentAfterReplacingParametersWithArguments.equals(other.getString());
-        } else if (other.codeFragmentAfterReplacingParametersWithArguments != null) {
-            return other.codeFragmentAfterReplacingParametersWithArguments.equals(this.getString());
+    /**
+     * @return True if the first quote from the index on comes before any concatenation.
+     */
+    private static boolean quoteAfter(String s, int index) {
+        int indexOfQuote = s.indexOf('"', index);
+        if (indexOfQuote != -1) {
+            int indexOfPlus = s.indexOf('+', index);
+            return indexOfPlus == -1 || indexOfPlus >= indexOfQuote;
         }
         return false;
     }
 
-    public void resetArgumentization() {
-        this.codeFragmentAfterReplacingParametersWithArguments = getString();
-    }
-
     private boolean isCastExpressionCoveringEntireFragment(String expression) {
         String statement = getString();
         int index = statement.indexOf(expression);
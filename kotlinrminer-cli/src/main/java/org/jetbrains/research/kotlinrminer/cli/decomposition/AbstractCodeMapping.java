@@ -22,16 +22,22 @@ public abstract class AbstractCodeMapping {
     private final AbstractCodeFragment fragment2;
     private final UMLOperation operation1;
     private final UMLOperation operation2;
+    private final ArgumentizedStrings argumentizedStrings;
     private final Set<Replacement> replacements;
     private boolean identicalWithExtractedVariable;
     private boolean identicalWithInlinedVariable;
 
+    /**
+     * @param argumentizedStrings The argumentized strings of the fragments compared by the mapper of the mapping.
+     */
     public AbstractCodeMapping(AbstractCodeFragment fragment1, AbstractCodeFragment fragment2,
-                               UMLOperation operation1, UMLOperation operation2) {
+                               UMLOperation operation1, UMLOperation operation2,
+                               ArgumentizedStrings argumentizedStrings) {
         this.fragment1 = fragment1;
         this.fragment2 = fragment2;
         this.operation1 = operation1;
         this.operation2 = operation2;
+        this.argumentizedStrings = argumentizedStrings;
         this.replacements = new LinkedHashSet<>();
     }
 
@@ -60,12 +66,20 @@ public abstract class AbstractCodeMapping {
     }
 
     public boolean isExact() {
-        return (fragment1.getArgumentizedString().equals(fragment2.getArgumentizedString()) ||
+        return (argumentizedStrings.get(fragment1).equals(argumentizedStrings.get(fragment2)) ||
             fragment1.getString().equals(fragment2.getString()) ||
             containsIdenticalOrCompositeReplacement()) && !isKeyword();
     }
 
 
+    /**
+     * @return true if a fragment contains the other, or one of them is equal to the other after replacing parameters
+     * with arguments.
+     */
+    public boolean equalFragments() {
+        return argumentizedStrings.equalFragments(fragment1, fragment2);
+    }
+
     private boolean isKeyword() {
         return fragment1.getString().startsWith("return") ||
             fragment1.getString().startsWith("break") ||
@@ -215,7 +229,7 @@ public abstract class AbstractCodeMapping {
                 }
             }
         }
-        String argumentizedString = statement.getArgumentizedString();
+        String argumentizedString = argumentizedStrings.get(statement);
         if (argumentizedString.contains("=")) {
             String beforeAssignment = argumentizedString.substring(0, argumentizedString.indexOf("="));
             String[] tokens = beforeAssignment.split("\\s");
@@ -377,7 +391,7 @@ public abstract class AbstractCodeMapping {
                 }
             }
         }
-        String argumentizedString = statement.getArgumentizedString();
+        String argumentizedString = argumentizedStrings.get(statement);
         if (argumentizedString.contains("=")) {
             String beforeAssignment = argumentizedString.substring(0, argumentizedString.indexOf("="));
             String[] tokens = beforeAssignment.split("\\s");
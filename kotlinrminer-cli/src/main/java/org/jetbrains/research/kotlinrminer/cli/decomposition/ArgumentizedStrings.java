@@ -0,0 +1,77 @@
+package org.jetbrains.research.kotlinrminer.cli.decomposition;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The strings of the code fragments compared by a mapper after replacing parameters with arguments.
+ * They are kept by the mappers instead of the fragments, so the fragments are not modified after parsing and the
+ * same statements can take part in several mappers at the same time. The fragments that a child mapper does not
+ * argumentize keep the argumentized strings of its parent mapper.
+ */
+public class ArgumentizedStrings {
+    private final Map<AbstractCodeFragment, String> argumentizedStrings = new IdentityHashMap<>();
+    private final ArgumentizedStrings parent;
+
+    public ArgumentizedStrings() {
+        this(null);
+    }
+
+    public ArgumentizedStrings(ArgumentizedStrings parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Replaces the parameters with the arguments of the map in the fragments. With an empty map, the argumentized
+     * strings of the fragments are their strings.
+     */
+    public void argumentize(List<? extends AbstractCodeFragment> fragments,
+                            Map<String, String> parameterToArgumentMap) {
+        for (AbstractCodeFragment fragment : fragments) {
+            argumentize(fragment, parameterToArgumentMap);
+        }
+    }
+
+    public void argumentize(AbstractCodeFragment fragment, Map<String, String> parameterToArgumentMap) {
+        argumentizedStrings.put(fragment, parameterToArgumentMap.isEmpty() ? fragment.getString() :
+            fragment.replaceParametersWithArguments(parameterToArgumentMap));
+    }
+
+    /**
+     * @return The argumentized string of the fragment, or its string if it was not argumentized.
+     */
+    public String get(AbstractCodeFragment fragment) {
+        String argumentizedString = find(fragment);
+        return argumentizedString != null ? argumentizedString : fragment.getString();
+    }
+
+    /**
+     * @return true if the string of a fragment contains the string of the other, or the argumentized string of the
+     * first argumentized fragment is equal to the string of the other.
+     */
+    public boolean equalFragments(AbstractCodeFragment fragment1, AbstractCodeFragment fragment2) {
+        String string1 = fragment1.getString();
+        String string2 = fragment2.getString();
+        if (string1.equals(string2) || string1.contains(string2) || string2.contains(string1)) {
+            return true;
+        }
+        String argumentizedString1 = find(fragment1);
+        if (argumentizedString1 != null) {
+            return argumentizedString1.equals(string2);
+        }
+        String argumentizedString2 = find(fragment2);
+        if (argumentizedString2 != null) {
+            return argumentizedString2.equals(string1);
+        }
+        return false;
+    }
+
+    private String find(AbstractCodeFragment fragment) {
+        String argumentizedString = argumentizedStrings.get(fragment);
+        if (argumentizedString == null && parent != null) {
+            return parent.find(fragment);
+        }
+        return argumentizedString;
+    }
+}
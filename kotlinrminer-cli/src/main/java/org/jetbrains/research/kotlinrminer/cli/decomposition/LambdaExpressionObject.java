@@ -5,7 +5,9 @@ import org.jetbrains.kotlin.psi.KtLambdaExpression;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 import org.jetbrains.research.kotlinrminer.cli.diff.CodeRange;
 
-public class LambdaExpressionObject implements LocationInfoProvider {
+import java.io.Serializable;
+
+public class LambdaExpressionObject implements LocationInfoProvider, Serializable {
     private final LocationInfo locationInfo;
     private final OperationBody body;
     private final AbstractExpression expression;
@@ -10,8 +10,8 @@ import java.util.Set;
 public class LeafMapping extends AbstractCodeMapping implements Comparable<LeafMapping> {
 
     public LeafMapping(AbstractCodeFragment statement1, AbstractCodeFragment statement2,
-                       UMLOperation operation1, UMLOperation operation2) {
-        super(statement1, statement2, operation1, operation2);
+                       UMLOperation operation1, UMLOperation operation2, ArgumentizedStrings argumentizedStrings) {
+        super(statement1, statement2, operation1, operation2, argumentizedStrings);
     }
 
     @Override
@@ -1,18 +1,18 @@
 package org.jetbrains.research.kotlinrminer.cli.decomposition;
 
-import org.jetbrains.kotlin.com.intellij.openapi.editor.Document;
 import org.jetbrains.kotlin.com.intellij.openapi.util.TextRange;
-import org.jetbrains.kotlin.com.intellij.openapi.util.text.StringUtil;
-import org.jetbrains.kotlin.com.intellij.psi.FileViewProvider;
 import org.jetbrains.kotlin.psi.KtElement;
 import org.jetbrains.kotlin.psi.KtFile;
 import org.jetbrains.research.kotlinrminer.cli.diff.CodeRange;
+import org.jetbrains.research.kotlinrminer.cli.util.LineIndex;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 
+import java.io.Serializable;
+
 /**
  * Provides an information about the element's location in the file.
  */
-public class LocationInfo {
+public class LocationInfo implements Serializable {
     private final String filePath;
     private final int startOffset;
     private final int endOffset;
@@ -32,14 +32,13 @@ public class LocationInfo {
         this.length = range.getLength();
         this.endOffset = range.getEndOffset();
 
-        FileViewProvider fileViewProvider = ktFile.getViewProvider();
-        Document document = fileViewProvider.getDocument();
+        LineIndex lineIndex = LineIndex.getInstance(ktFile);
 
-        if (document != null) {
-            this.startLine = document.getLineNumber(startOffset) + 1;
-            this.endLine = document.getLineNumber(endOffset) + 1;
-            this.startColumn = StringUtil.offsetToLineColumn(document.getCharsSequence(), startOffset).column + 1;
-            this.endColumn = StringUtil.offsetToLineColumn(document.getCharsSequence(), endOffset).column + 1;
+        if (lineIndex != null) {
+            this.startLine = lineIndex.getLineNumber(startOffset) + 1;
+            this.endLine = lineIndex.getLineNumber(endOffset) + 1;
+            this.startColumn = lineIndex.getColumn(startOffset) + 1;
+            this.endColumn = lineIndex.getColumn(endOffset) + 1;
         } else {
             this.startLine = 0;
             this.endLine = 0;
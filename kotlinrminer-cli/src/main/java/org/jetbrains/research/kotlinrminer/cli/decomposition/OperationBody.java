@@ -4,12 +4,13 @@ import org.jetbrains.kotlin.com.intellij.psi.PsiElement;
 import org.jetbrains.kotlin.psi.*;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class OperationBody {
+public class OperationBody implements Serializable {
 
     private final CompositeStatementObject compositeStatement;
     private final boolean isEmpty;
@@ -34,6 +35,18 @@ public class OperationBody {
         return isEmpty;
     }
 
+    /**
+     * @return True if the body of the operation is not empty, which is checked without decomposing the body.
+     */
+    public static boolean hasStatements(KtExpression methodBody) {
+        for (PsiElement child = methodBody.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof KtExpression) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public int statementCount() {
         return compositeStatement.statementCount();
     }
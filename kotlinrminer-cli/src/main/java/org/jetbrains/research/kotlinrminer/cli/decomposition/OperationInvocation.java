@@ -173,6 +173,10 @@ public class OperationInvocation extends AbstractCall {
 
     public boolean matchesOperation(UMLOperation operation, Map<String, UMLType> variableTypeMap,
                                     UMLModelDiff modelDiff) {
+        //the inferred argument types are not checked, so an operation with another name can be rejected right away
+        if (!this.methodName.equals(operation.getName())) {
+            return false;
+        }
         List<UMLType> inferredArgumentTypes = new ArrayList<>();
         for (String arg : arguments) {
             int indexOfOpeningParenthesis = arg.indexOf("(");
@@ -6,10 +6,11 @@ import org.jetbrains.research.kotlinrminer.cli.diff.CodeRange;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLAnnotation;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLType;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class VariableDeclaration implements LocationInfoProvider, VariableDeclarationProvider {
+public class VariableDeclaration implements LocationInfoProvider, VariableDeclarationProvider, Serializable {
     private String variableName;
     private AbstractExpression initializer;
     private UMLType type;
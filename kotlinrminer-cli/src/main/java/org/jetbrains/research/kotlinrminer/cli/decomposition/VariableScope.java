@@ -1,11 +1,11 @@
 package org.jetbrains.research.kotlinrminer.cli.decomposition;
 
-import org.jetbrains.kotlin.com.intellij.openapi.editor.Document;
-import org.jetbrains.kotlin.com.intellij.openapi.util.text.StringUtil;
-import org.jetbrains.kotlin.com.intellij.psi.FileViewProvider;
 import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.research.kotlinrminer.cli.util.LineIndex;
 
-public class VariableScope {
+import java.io.Serializable;
+
+public class VariableScope implements Serializable {
     private final String filePath;
     private final int startOffset;
     private final int endOffset;
@@ -19,19 +19,17 @@ public class VariableScope {
         this.startOffset = startOffset;
         this.endOffset = endOffset;
 
-        FileViewProvider fileViewProvider = ktFile.getViewProvider();
-        Document document = fileViewProvider.getDocument();
+        LineIndex lineIndex = LineIndex.getInstance(ktFile);
 
-        CharSequence documentAsCharSequence = document != null ? document.getCharsSequence() : "";
-        this.startLine = document != null ? document.getLineNumber(startOffset) : 0;
-        this.endLine = document != null ? document.getLineNumber(endOffset) : 0;
+        this.startLine = lineIndex != null ? lineIndex.getLineNumber(startOffset) : 0;
+        this.endLine = lineIndex != null ? lineIndex.getLineNumber(endOffset) : 0;
         //columns are 0-based
-        this.startColumn = StringUtil.offsetToLineColumn(documentAsCharSequence, startOffset).column;
+        this.startColumn = lineIndex != null ? lineIndex.getColumn(startOffset) : 0;
         //convert to 1-based
         if (this.startColumn > 0) {
             this.startColumn += 1;
         }
-        this.endColumn = StringUtil.offsetToLineColumn(documentAsCharSequence, endOffset).column;
+        this.endColumn = lineIndex != null ? lineIndex.getColumn(endOffset) : 0;
         //convert to 1-based
         if (this.endColumn > 0) {
             this.endColumn += 1;
@@ -18,7 +18,7 @@ public class ExtractOperationDetection {
     private final List<UMLOperation> addedOperations;
     private final UMLClassBaseDiff classDiff;
     private final UMLModelDiff modelDiff;
-    private final List<OperationInvocation> operationInvocations;
+    private final OperationInvocationIndex operationInvocationIndex;
     private final Map<CallTreeNode, CallTree> callTreeMap = new LinkedHashMap<>();
 
     public ExtractOperationDetection(UMLOperationBodyMapper mapper,
@@ -29,7 +29,8 @@ public class ExtractOperationDetection {
         this.addedOperations = addedOperations;
         this.classDiff = classDiff;
         this.modelDiff = modelDiff;
-        this.operationInvocations = getInvocationsInSourceOperationAfterExtraction(mapper);
+        this.operationInvocationIndex =
+            new OperationInvocationIndex(getInvocationsInSourceOperationAfterExtraction(mapper));
     }
 
     public List<ExtractOperationRefactoring> check(UMLOperation addedOperation) throws
@@ -38,14 +39,15 @@ public class ExtractOperationDetection {
         if (!mapper.getNonMappedLeavesT1().isEmpty() || !mapper.getNonMappedInnerNodesT1().isEmpty() ||
             !mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
             List<OperationInvocation> addedOperationInvocations =
-                matchingInvocations(addedOperation, operationInvocations, mapper.getOperation2().variableTypeMap());
+                operationInvocationIndex.matchingInvocations(addedOperation, mapper.getOperation2().variableTypeMap(),
+                    modelDiff);
             if (addedOperationInvocations.size() > 0) {
                 int otherAddedMethodsCalled = 0;
                 for (UMLOperation addedOperation2 : this.addedOperations) {
                     if (!addedOperation.equals(addedOperation2)) {
                         List<OperationInvocation> addedOperationInvocations2 =
-                            matchingInvocations(addedOperation2, operationInvocations,
-                                mapper.getOperation2().variableTypeMap());
+                            operationInvocationIndex.matchingInvocations(addedOperation2,
+                                mapper.getOperation2().variableTypeMap(), modelDiff);
                         if (addedOperationInvocations2.size() > 0) {
                             otherAddedMethodsCalled++;
                         }
@@ -87,8 +89,8 @@ public class ExtractOperationDetection {
             List<CallTreeNode> nodesInBreadthFirstOrder = callTree.getNodesInBreadthFirstOrder();
             for (int i = 1; i < nodesInBreadthFirstOrder.size(); i++) {
                 CallTreeNode node = nodesInBreadthFirstOrder.get(i);
-                if (matchingInvocations(node.getInvokedOperation(), operationInvocations,
-                    mapper.getOperation2().variableTypeMap()).size() == 0) {
+                if (operationInvocationIndex.matchingInvocations(node.getInvokedOperation(),
+                    mapper.getOperation2().variableTypeMap(), modelDiff).size() == 0) {
                     UMLOperationBodyMapper nestedMapper =
                         createMapperForExtractedMethod(mapper, node.getOriginalOperation(), node.getInvokedOperation(),
                             node.getInvocation());
@@ -204,15 +206,14 @@ public class ExtractOperationDetection {
     }
 
     private void generateCallTree(UMLOperation operation, CallTreeNode parent, CallTree callTree) {
-        List<OperationInvocation> invocations = operation.getAllOperationInvocations();
+        OperationInvocationIndex invocationIndex = new OperationInvocationIndex(operation.getAllOperationInvocations());
         for (UMLOperation addedOperation : addedOperations) {
-            for (OperationInvocation invocation : invocations) {
-                if (invocation.matchesOperation(addedOperation, operation.variableTypeMap(), modelDiff)) {
-                    if (!callTree.contains(addedOperation)) {
-                        CallTreeNode node = new CallTreeNode(operation, addedOperation, invocation);
-                        parent.addChild(node);
-                        generateCallTree(addedOperation, node, callTree);
-                    }
+            for (OperationInvocation invocation : invocationIndex.matchingInvocations(addedOperation,
+                operation.variableTypeMap(), modelDiff)) {
+                if (!callTree.contains(addedOperation)) {
+                    CallTreeNode node = new CallTreeNode(operation, addedOperation, invocation);
+                    parent.addChild(node);
+                    generateCallTree(addedOperation, node, callTree);
                 }
             }
         }
@@ -19,7 +19,7 @@ public class InlineOperationDetection {
     private final List<UMLOperation> removedOperations;
     private final UMLClassBaseDiff classDiff;
     private final UMLModelDiff modelDiff;
-    private final List<OperationInvocation> operationInvocations;
+    private final OperationInvocationIndex operationInvocationIndex;
     private final Map<CallTreeNode, CallTree> callTreeMap = new LinkedHashMap<>();
 
     public InlineOperationDetection(UMLOperationBodyMapper mapper,
@@ -30,7 +30,8 @@ public class InlineOperationDetection {
         this.removedOperations = removedOperations;
         this.classDiff = classDiff;
         this.modelDiff = modelDiff;
-        this.operationInvocations = getInvocationsInTargetOperationBeforeInline(mapper);
+        this.operationInvocationIndex =
+            new OperationInvocationIndex(getInvocationsInTargetOperationBeforeInline(mapper));
     }
 
     public List<InlineOperationRefactoring> check(UMLOperation removedOperation) throws
@@ -39,7 +40,8 @@ public class InlineOperationDetection {
         if (!mapper.getNonMappedLeavesT2().isEmpty() || !mapper.getNonMappedInnerNodesT2().isEmpty() ||
             !mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
             List<OperationInvocation> removedOperationInvocations =
-                matchingInvocations(removedOperation, operationInvocations, mapper.getOperation1().variableTypeMap());
+                operationInvocationIndex.matchingInvocations(removedOperation,
+                    mapper.getOperation1().variableTypeMap(), modelDiff);
             if (removedOperationInvocations.size() > 0 && !invocationMatchesWithAddedOperation(
                 removedOperationInvocations.get(0), mapper.getOperation1().variableTypeMap(),
                 mapper.getOperation2().getAllOperationInvocations())) {
@@ -60,8 +62,8 @@ public class InlineOperationDetection {
                 List<CallTreeNode> nodesInBreadthFirstOrder = callTree.getNodesInBreadthFirstOrder();
                 for (int i = 1; i < nodesInBreadthFirstOrder.size(); i++) {
                     CallTreeNode node = nodesInBreadthFirstOrder.get(i);
-                    if (matchingInvocations(node.getInvokedOperation(), operationInvocations,
-                        mapper.getOperation1().variableTypeMap()).size() == 0) {
+                    if (operationInvocationIndex.matchingInvocations(node.getInvokedOperation(),
+                        mapper.getOperation1().variableTypeMap(), modelDiff).size() == 0) {
                         UMLOperationBodyMapper nestedMapper =
                             createMapperForInlinedMethod(mapper, node.getInvokedOperation(), node.getInvocation());
                         additionalExactMatches.addAll(nestedMapper.getExactMatches());
@@ -138,15 +140,14 @@ public class InlineOperationDetection {
     }
 
     private void generateCallTree(UMLOperation operation, CallTreeNode parent, CallTree callTree) {
-        List<OperationInvocation> invocations = operation.getAllOperationInvocations();
+        OperationInvocationIndex invocationIndex = new OperationInvocationIndex(operation.getAllOperationInvocations());
         for (UMLOperation removedOperation : removedOperations) {
-            for (OperationInvocation invocation : invocations) {
-                if (invocation.matchesOperation(removedOperation, operation.variableTypeMap(), modelDiff)) {
-                    if (!callTree.contains(removedOperation)) {
-                        CallTreeNode node = new CallTreeNode(operation, removedOperation, invocation);
-                        parent.addChild(node);
-                        generateCallTree(removedOperation, node, callTree);
-                    }
+            for (OperationInvocation invocation : invocationIndex.matchingInvocations(removedOperation,
+                operation.variableTypeMap(), modelDiff)) {
+                if (!callTree.contains(removedOperation)) {
+                    CallTreeNode node = new CallTreeNode(operation, removedOperation, invocation);
+                    parent.addChild(node);
+                    generateCallTree(removedOperation, node, callTree);
                 }
             }
         }
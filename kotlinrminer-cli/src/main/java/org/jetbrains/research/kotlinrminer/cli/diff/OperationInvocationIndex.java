@@ -0,0 +1,42 @@
+package org.jetbrains.research.kotlinrminer.cli.diff;
+
+import org.jetbrains.research.kotlinrminer.cli.decomposition.OperationInvocation;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The invocations of a list grouped by method name. An invocation matches only the operations with its method name,
+ * so the invocations of an operation are found by checking the arguments of the invocations in one group.
+ */
+public class OperationInvocationIndex {
+    private final Map<String, List<OperationInvocation>> invocationsByMethodName = new HashMap<>();
+
+    public OperationInvocationIndex(List<OperationInvocation> invocations) {
+        for (OperationInvocation invocation : invocations) {
+            invocationsByMethodName.computeIfAbsent(invocation.getMethodName(), k -> new ArrayList<>())
+                .add(invocation);
+        }
+    }
+
+    /**
+     * @return The invocations, in list order, that match the operation.
+     */
+    public List<OperationInvocation> matchingInvocations(UMLOperation operation,
+                                                         Map<String, UMLType> variableTypeMap,
+                                                         UMLModelDiff modelDiff) {
+        List<OperationInvocation> matchingInvocations = new ArrayList<>();
+        for (OperationInvocation invocation : invocationsByMethodName.getOrDefault(operation.getName(),
+                                                                                 Collections.emptyList())) {
+            if (invocation.matchesOperation(operation, variableTypeMap, modelDiff)) {
+                matchingInvocations.add(invocation);
+            }
+        }
+        return matchingInvocations;
+    }
+}
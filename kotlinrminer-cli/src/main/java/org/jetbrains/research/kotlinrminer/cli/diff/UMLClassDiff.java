@@ -9,12 +9,19 @@ import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLType;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class UMLClassDiff extends UMLClassBaseDiff {
 
     private final String className;
+    /**
+     * The mappers of the operations with the same signature that were created before the class diff was processed,
+     * by original operation.
+     */
+    private final Map<UMLOperation, UMLOperationBodyMapper> sameSignatureMappers = new IdentityHashMap<>();
 
     public UMLClassDiff(UMLClass originalClass, UMLClass nextClass, UMLModelDiff modelDiff) {
         super(originalClass, nextClass, modelDiff);
@@ -89,13 +96,14 @@ public class UMLClassDiff extends UMLClassBaseDiff {
                                 getModelDiff().commonlyImplementedOperations(operation1, nextOperation, this)) {
                                 if (!removedOperations.contains(originalOperation)) {
                                     removedOperations.add(originalOperation);
+                                    //the mappers created before compared the operations to fewer removed operations
+                                    sameSignatureMappers.clear();
                                 }
                                 break;
                             }
                         }
                     }
-                    UMLOperationBodyMapper operationBodyMapper =
-                        new UMLOperationBodyMapper(originalOperation, nextOperation, this);
+                    UMLOperationBodyMapper operationBodyMapper = getSameSignatureMapper(originalOperation, nextOperation);
                     UMLOperationDiff operationSignatureDiff =
                         new UMLOperationDiff(originalOperation, nextOperation, operationBodyMapper.getMappings());
                     refactorings.addAll(operationSignatureDiff.getRefactorings());
@@ -161,6 +169,20 @@ public class UMLClassDiff extends UMLClassBaseDiff {
         addedOperations.removeAll(addedOperationsToBeRemoved);
     }
 
+    void addSameSignatureMapper(UMLOperationBodyMapper operationBodyMapper) {
+        sameSignatureMappers.put(operationBodyMapper.getOperation1(), operationBodyMapper);
+    }
+
+    private UMLOperationBodyMapper getSameSignatureMapper(UMLOperation originalOperation,
+                                                          UMLOperation nextOperation) throws
+        RefactoringMinerTimedOutException {
+        UMLOperationBodyMapper operationBodyMapper = sameSignatureMappers.remove(originalOperation);
+        if (operationBodyMapper != null && operationBodyMapper.getOperation2() == nextOperation) {
+            return operationBodyMapper;
+        }
+        return new UMLOperationBodyMapper(originalOperation, nextOperation, this);
+    }
+
     protected void checkForAttributeChanges() {
         for (Iterator<UMLAttribute> removedAttributeIterator =
              removedAttributes.iterator(); removedAttributeIterator.hasNext(); ) {
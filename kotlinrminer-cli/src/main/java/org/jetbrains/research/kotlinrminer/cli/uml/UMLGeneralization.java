@@ -1,6 +1,8 @@
 package org.jetbrains.research.kotlinrminer.cli.uml;
 
-public class UMLGeneralization implements Comparable<UMLGeneralization> {
+import java.io.Serializable;
+
+public class UMLGeneralization implements Comparable<UMLGeneralization>, Serializable {
     private final UMLClass child;
     private final String parent;
 
@@ -1,9 +1,10 @@
 package org.jetbrains.research.kotlinrminer.cli.uml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class UMLJavadoc {
+public class UMLJavadoc implements Serializable {
     private final List<UMLTagElement> tags;
 
     public UMLJavadoc() {
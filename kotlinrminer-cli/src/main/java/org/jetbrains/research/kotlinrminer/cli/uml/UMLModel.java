@@ -6,6 +6,7 @@ import org.jetbrains.research.kotlinrminer.cli.diff.UMLFileDiff;
 import org.jetbrains.research.kotlinrminer.cli.diff.UMLModelDiff;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 public class UMLModel {
     private final Set<String> repositoryDirectories;
@@ -14,6 +15,14 @@ public class UMLModel {
     private final List<UMLGeneralization> generalizationList;
     private final List<UMLRealization> realizationList;
     private final List<UMLFile> fileList;
+    /**
+     * Indexes of the lists above, so that the classes, files, generalizations and realizations of two models
+     * can be matched without scanning the lists. The buckets keep the order of the lists.
+     */
+    private final Map<String, List<UMLClass>> classesByQualifiedName;
+    private final Map<String, UMLFile> filesByName;
+    private final Map<String, List<UMLGeneralization>> generalizationsByChild;
+    private final Map<String, List<UMLRealization>> realizationsByClient;
 
     public UMLModel(Set<String> repositoryDirectories) {
         this.repositoryDirectories = repositoryDirectories;
@@ -22,10 +31,15 @@ public class UMLModel {
         generalizationList = new ArrayList<>();
         realizationList = new ArrayList<>();
         fileList = new ArrayList<>();
+        classesByQualifiedName = new HashMap<>();
+        filesByName = new HashMap<>();
+        generalizationsByChild = new HashMap<>();
+        realizationsByClient = new HashMap<>();
     }
 
     public void addClass(UMLClass umlClass) {
         classList.add(umlClass);
+        classesByQualifiedName.computeIfAbsent(umlClass.getQualifiedName(), k -> new ArrayList<>()).add(umlClass);
     }
 
     public void addObject(UMLObject umlObject) {
@@ -34,29 +48,57 @@ public class UMLModel {
 
     public void addGeneralization(UMLGeneralization umlGeneralization) {
         generalizationList.add(umlGeneralization);
+        generalizationsByChild.computeIfAbsent(umlGeneralization.getChild().getQualifiedName(),
+                                               k -> new ArrayList<>()).add(umlGeneralization);
     }
 
     public void addRealization(UMLRealization umlRealization) {
         realizationList.add(umlRealization);
+        realizationsByClient.computeIfAbsent(umlRealization.getClient().getQualifiedName(),
+                                             k -> new ArrayList<>()).add(umlRealization);
     }
 
     public void addFile(UMLFile umlFile) {
         fileList.add(umlFile);
+        filesByName.putIfAbsent(umlFile.getFileName(), umlFile);
+    }
+
+    /**
+     * Appends the classes, objects, generalizations, realizations and files of another model to this model.
+     */
+    public void addAll(UMLModel otherModel) {
+        otherModel.classList.forEach(this::addClass);
+        objectList.addAll(otherModel.objectList);
+        otherModel.generalizationList.forEach(this::addGeneralization);
+        otherModel.realizationList.forEach(this::addRealization);
+        otherModel.fileList.forEach(this::addFile);
     }
 
     public UMLClass getClass(UMLClass umlClassFromOtherModel) {
-        for (UMLClass umlClass : classList) {
-            if (umlClass.equals(umlClassFromOtherModel)) {
-                return umlClass;
-            }
-        }
-        return null;
+        return findEqual(classesByQualifiedName.get(umlClassFromOtherModel.getQualifiedName()),
+                         umlClassFromOtherModel);
     }
 
     public UMLFile getFile(UMLFile umlFileFromOtherModel) {
-        for (UMLFile umlFile : fileList) {
-            if (umlFile.equals(umlFileFromOtherModel)) {
-                return umlFile;
+        return filesByName.get(umlFileFromOtherModel.getFileName());
+    }
+
+    private boolean containsGeneralization(UMLGeneralization umlGeneralization) {
+        return findEqual(generalizationsByChild.get(umlGeneralization.getChild().getQualifiedName()),
+                         umlGeneralization) != null;
+    }
+
+    private boolean containsRealization(UMLRealization umlRealization) {
+        return findEqual(realizationsByClient.get(umlRealization.getClient().getQualifiedName()),
+                         umlRealization) != null;
+    }
+
+    private static <T> T findEqual(List<T> bucket, T element) {
+        if (bucket != null) {
+            for (T candidate : bucket) {
+                if (candidate.equals(element)) {
+                    return candidate;
+                }
             }
         }
         return null;
@@ -66,12 +108,21 @@ public class UMLModel {
         return this.classList;
     }
 
+    public List<UMLFile> getFileList() {
+        return this.fileList;
+    }
+
     public List<UMLGeneralization> getGeneralizationList() {
         return this.generalizationList;
     }
 
     public UMLGeneralization matchGeneralization(UMLGeneralization otherGeneralization) {
-        for (UMLGeneralization generalization : generalizationList) {
+        List<UMLGeneralization> generalizations =
+            generalizationsByChild.get(otherGeneralization.getChild().getQualifiedName());
+        if (generalizations == null) {
+            return null;
+        }
+        for (UMLGeneralization generalization : generalizations) {
             if (generalization.getChild().equals(otherGeneralization.getChild())) {
                 String thisParent = generalization.getParent();
                 String otherParent = otherGeneralization.getParent();
@@ -101,46 +152,56 @@ public class UMLModel {
 
     public UMLModelDiff diff(UMLModel umlModel, Map<String, String> renamedFileHints) throws
         RefactoringMinerTimedOutException {
+        return this.diff(umlModel, renamedFileHints, null);
+    }
+
+    /**
+     * @param mapperExecutor The executor that maps the bodies of the operations, or null to map them on
+     *                       the current thread, see {@link UMLModelDiff#setMapperExecutor(ExecutorService)}.
+     */
+    public UMLModelDiff diff(UMLModel umlModel, Map<String, String> renamedFileHints, ExecutorService mapperExecutor)
+        throws RefactoringMinerTimedOutException {
         UMLModelDiff modelDiff = new UMLModelDiff();
+        modelDiff.setMapperExecutor(mapperExecutor);
         for (UMLClass umlClass : classList) {
-            if (!umlModel.classList.contains(umlClass)) {
+            if (umlModel.getClass(umlClass) == null) {
                 modelDiff.reportRemovedClass(umlClass);
             }
         }
         for (UMLClass umlClass : umlModel.classList) {
-            if (!this.classList.contains(umlClass)) {
+            if (this.getClass(umlClass) == null) {
                 modelDiff.reportAddedClass(umlClass);
             }
         }
 
+        List<UMLClassDiff> commonClassDiffs = new ArrayList<>();
         for (UMLClass umlClass : classList) {
-            if (umlModel.classList.contains(umlClass)) {
-                UMLClassDiff classDiff = new UMLClassDiff(umlClass, umlModel.getClass(umlClass), modelDiff);
-                classDiff.process();
-                if (!classDiff.isEmpty()) {
-                    modelDiff.addUMLClassDiff(classDiff);
-                }
+            UMLClass nextClass = umlModel.getClass(umlClass);
+            if (nextClass != null) {
+                commonClassDiffs.add(new UMLClassDiff(umlClass, nextClass, modelDiff));
             }
         }
+        modelDiff.processCommonClassDiffs(commonClassDiffs);
 
         for (UMLGeneralization umlGeneralization : generalizationList) {
-            if (!umlModel.generalizationList.contains(umlGeneralization))
+            if (!umlModel.containsGeneralization(umlGeneralization))
                 modelDiff.reportRemovedGeneralization(umlGeneralization);
         }
         for (UMLGeneralization umlGeneralization : umlModel.generalizationList) {
-            if (!this.generalizationList.contains(umlGeneralization))
+            if (!this.containsGeneralization(umlGeneralization))
                 modelDiff.reportAddedGeneralization(umlGeneralization);
         }
 
         modelDiff.checkForGeneralizationChanges();
         for (UMLRealization umlRealization : realizationList) {
-            if (!umlModel.realizationList.contains(umlRealization))
+            if (!umlModel.containsRealization(umlRealization))
                 modelDiff.reportRemovedRealization(umlRealization);
         }
 
         for (UMLFile umlFile : fileList) {
-            if (umlModel.fileList.contains(umlFile)) {
-                UMLFileDiff fileDiff = new UMLFileDiff(umlFile, umlModel.getFile(umlFile), modelDiff);
+            UMLFile nextFile = umlModel.getFile(umlFile);
+            if (nextFile != null) {
+                UMLFileDiff fileDiff = new UMLFileDiff(umlFile, nextFile, modelDiff);
                 fileDiff.process();
                 if (!fileDiff.isEmpty()) {
                     modelDiff.addUmlFileDiff(fileDiff);
@@ -3,9 +3,16 @@ package org.jetbrains.research.kotlinrminer.cli.uml;
 import org.jetbrains.research.kotlinrminer.cli.decomposition.*;
 import org.jetbrains.research.kotlinrminer.common.util.StringDistance;
 import org.jetbrains.research.kotlinrminer.cli.diff.CodeRange;
+import org.jetbrains.research.kotlinrminer.cli.util.ModelSerialization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Supplier;
 
 public class UMLOperation implements Comparable<UMLOperation>, Serializable, LocationInfoProvider {
     private final LocationInfo locationInfo;
@@ -20,7 +27,10 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     private boolean isFinal;
     private boolean isStatic;
     private boolean emptyBody;
-    private OperationBody operationBody;
+    private boolean hasBody;
+    private transient OperationBody operationBody;
+    private transient volatile Supplier<OperationBody> lazyBody;
+    private transient Map<String, UMLType> variableTypeMap;
     private UMLJavadoc javadoc;
 
     public UMLOperation(String name, LocationInfo locationInfo) {
@@ -120,12 +130,89 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
         this.emptyBody = emptyBody;
     }
 
+    public boolean hasBody() {
+        return hasBody;
+    }
+
     public OperationBody getBody() {
+        if (lazyBody != null) {
+            loadBody();
+        }
         return operationBody;
     }
 
     public void setBody(OperationBody body) {
         this.operationBody = body;
+        this.hasBody = body != null;
+        this.lazyBody = null;
+        this.variableTypeMap = null;
+    }
+
+    /**
+     * Sets the body that is built on the first call of {@link #getBody()}, so that the bodies which are never
+     * mapped are not decomposed. The emptiness of the body must be set in advance, since it is a part of equality.
+     */
+    public void setLazyBody(Supplier<OperationBody> lazyBody) {
+        this.operationBody = null;
+        this.hasBody = true;
+        this.lazyBody = lazyBody;
+        this.variableTypeMap = null;
+    }
+
+    private synchronized void loadBody() {
+        Supplier<OperationBody> body = lazyBody;
+        if (body == null) {
+            return;
+        }
+        operationBody = body.get();
+        lazyBody = null;
+    }
+
+    /**
+     * Writes the body as a separate byte array, so that it is not deserialized until it is used.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        Supplier<OperationBody> body = lazyBody;
+        byte[] bytes = null;
+        if (body instanceof SerializedBody) {
+            bytes = ((SerializedBody) body).bytes;
+        } else if (getBody() != null) {
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream bodyOut = ModelSerialization.newOutputStream(bodyBytes)) {
+                bodyOut.writeObject(operationBody);
+            }
+            bytes = bodyBytes.toByteArray();
+        }
+        out.writeObject(bytes);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        byte[] bytes = (byte[]) in.readObject();
+        lazyBody = bytes != null ? new SerializedBody(name, bytes) : null;
+    }
+
+    /**
+     * The body of an operation read from the parse cache, which is deserialized on the first access.
+     */
+    private static class SerializedBody implements Supplier<OperationBody> {
+        private final String operationName;
+        private final byte[] bytes;
+
+        private SerializedBody(String operationName, byte[] bytes) {
+            this.operationName = operationName;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public OperationBody get() {
+            try (ObjectInputStream in = ModelSerialization.newInputStream(new ByteArrayInputStream(bytes))) {
+                return (OperationBody) in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalStateException("Cannot read the body of operation " + operationName, e);
+            }
+        }
     }
 
     public boolean hasTestAnnotation() {
@@ -152,42 +239,51 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     }
 
     public List<String> getAllVariables() {
-        if (operationBody != null) {
-            return operationBody.getAllVariables();
+        if (getBody() != null) {
+            return getBody().getAllVariables();
         }
         return new ArrayList<>();
     }
 
     public List<VariableDeclaration> getAllVariableDeclarations() {
-        if (operationBody != null) {
-            return operationBody.getAllVariableDeclarations();
+        if (getBody() != null) {
+            return getBody().getAllVariableDeclarations();
         }
         return new ArrayList<>();
     }
 
     public VariableDeclaration getVariableDeclaration(String variableName) {
-        if (operationBody != null) {
-            return operationBody.getVariableDeclaration(variableName);
+        if (getBody() != null) {
+            return getBody().getVariableDeclaration(variableName);
         }
         return null;
     }
 
+    /**
+     * @return The types of the parameters and of the variables declared in the body. The map is built once, since
+     * every invocation matched against the operations asks for it, and cannot be modified.
+     */
     public Map<String, UMLType> variableTypeMap() {
-        Map<String, UMLType> variableTypeMap = new LinkedHashMap<>();
-        for (UMLParameter parameter : parameters) {
-            if (!parameter.getKind().equals("return")) {
-                variableTypeMap.put(parameter.getName(), parameter.getType());
+        Map<String, UMLType> typeMap = variableTypeMap;
+        if (typeMap == null) {
+            typeMap = new LinkedHashMap<>();
+            for (UMLParameter parameter : parameters) {
+                if (!parameter.getKind().equals("return")) {
+                    typeMap.put(parameter.getName(), parameter.getType());
+                }
             }
+            for (VariableDeclaration declaration : getAllVariableDeclarations()) {
+                typeMap.put(declaration.getVariableName(), declaration.getType());
+            }
+            typeMap = Collections.unmodifiableMap(typeMap);
+            variableTypeMap = typeMap;
         }
-        for (VariableDeclaration declaration : getAllVariableDeclarations()) {
-            variableTypeMap.put(declaration.getVariableName(), declaration.getType());
-        }
-        return variableTypeMap;
+        return typeMap;
     }
 
     public int statementCount() {
-        if (operationBody != null) {
-            return operationBody.statementCount();
+        if (getBody() != null) {
+            return getBody().statementCount();
         }
         return 0;
     }
@@ -206,6 +302,7 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 
     public void addParameter(UMLParameter parameter) {
         this.parameters.add(parameter);
+        this.variableTypeMap = null;
     }
 
     public List<UMLParameter> getParameters() {
@@ -237,8 +334,8 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
                 variableDeclarations.add(parameterDeclaration);
             }
         }
-        if (operationBody != null) {
-            variableDeclarations.addAll(operationBody.getVariableDeclarationsInScope(location));
+        if (getBody() != null) {
+            variableDeclarations.addAll(getBody().getVariableDeclarationsInScope(location));
         }
         return variableDeclarations;
     }
@@ -415,8 +512,8 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     }
 
     public List<String> stringRepresentation() {
-        if (operationBody != null) {
-            return operationBody.stringRepresentation();
+        if (getBody() != null) {
+            return getBody().stringRepresentation();
         }
         return new ArrayList<>();
     }
@@ -490,8 +587,8 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     }
 
     public boolean equalsIgnoringVisibility(UMLOperation operation) {
-        boolean thisEmptyBody = this.getBody() == null || this.hasEmptyBody();
-        boolean otherEmptyBody = operation.getBody() == null || operation.hasEmptyBody();
+        boolean thisEmptyBody = !this.hasBody() || this.hasEmptyBody();
+        boolean otherEmptyBody = !operation.hasBody() || operation.hasEmptyBody();
         return this.className.equals(operation.className) &&
             this.name.equals(operation.name) &&
             this.isAbstract == operation.isAbstract &&
@@ -502,8 +599,8 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     }
 
     public boolean equalsIgnoringNameCase(UMLOperation operation) {
-        boolean thisEmptyBody = this.getBody() == null || this.hasEmptyBody();
-        boolean otherEmptyBody = operation.getBody() == null || operation.hasEmptyBody();
+        boolean thisEmptyBody = !this.hasBody() || this.hasEmptyBody();
+        boolean otherEmptyBody = !operation.hasBody() || operation.hasEmptyBody();
         return this.className.equals(operation.className) &&
             this.name.equalsIgnoreCase(operation.name) &&
             this.visibility.equals(operation.visibility) &&
@@ -521,8 +618,8 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 
         if (o instanceof UMLOperation) {
             UMLOperation operation = (UMLOperation) o;
-            boolean thisEmptyBody = this.getBody() == null || this.hasEmptyBody();
-            boolean otherEmptyBody = operation.getBody() == null || operation.hasEmptyBody();
+            boolean thisEmptyBody = !this.hasBody() || this.hasEmptyBody();
+            boolean otherEmptyBody = !operation.hasBody() || operation.hasEmptyBody();
             return this.className.equals(operation.className) &&
                 this.name.equals(operation.name) &&
                 this.visibility.equals(operation.visibility) &&
@@ -567,7 +664,7 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        boolean thisEmptyBody = this.getBody() == null || this.hasEmptyBody();
+        boolean thisEmptyBody = !this.hasBody() || this.hasEmptyBody();
         result = prime * result + ((className == null) ? 0 : className.hashCode());
         result = prime * result + (isAbstract ? 1231 : 1237);
         result = prime * result + (thisEmptyBody ? 1231 : 1237);
@@ -775,9 +872,9 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     }
 
     public Map<String, Set<String>> aliasedAttributes() {
-        if (operationBody != null && isConstructor) {
+        if (getBody() != null && isConstructor) {
             List<String> parameterNames = getParameterNameList();
-            Map<String, Set<String>> map = operationBody.aliasedAttributes();
+            Map<String, Set<String>> map = getBody().aliasedAttributes();
             map.keySet().removeIf(key -> !parameterNames.contains(key));
             return map;
         }
@@ -785,22 +882,22 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     }
 
     public CompositeStatementObject loopWithVariables(String currentElementName, String collectionName) {
-        if (operationBody != null) {
-            return operationBody.loopWithVariables(currentElementName, collectionName);
+        if (getBody() != null) {
+            return getBody().loopWithVariables(currentElementName, collectionName);
         }
         return null;
     }
 
     public List<OperationInvocation> getAllOperationInvocations() {
-        if (operationBody != null) {
-            return operationBody.getAllOperationInvocations();
+        if (getBody() != null) {
+            return getBody().getAllOperationInvocations();
         }
         return new ArrayList<>();
     }
 
     public List<LambdaExpressionObject> getAllLambdas() {
-        if (operationBody != null)
-            return operationBody.getAllLambdas();
+        if (getBody() != null)
+            return getBody().getAllLambdas();
         return new ArrayList<>();
     }
 
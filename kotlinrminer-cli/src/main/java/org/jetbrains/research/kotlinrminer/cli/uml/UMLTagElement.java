@@ -1,9 +1,10 @@
 package org.jetbrains.research.kotlinrminer.cli.uml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class UMLTagElement {
+public class UMLTagElement implements Serializable {
     private final String tagName;
     private final List<String> fragments;
 
@@ -1,9 +1,10 @@
 package org.jetbrains.research.kotlinrminer.cli.uml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class UMLTypeParameter {
+public class UMLTypeParameter implements Serializable {
     private final String name;
     private final List<UMLType> typeBounds;
     private final List<UMLAnnotation> annotations;
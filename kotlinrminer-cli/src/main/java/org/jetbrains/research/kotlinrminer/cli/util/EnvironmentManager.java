@@ -6,6 +6,7 @@ import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
 import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles;
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment;
 import org.jetbrains.kotlin.cli.jvm.config.JvmContentRootsKt;
+import org.jetbrains.kotlin.com.intellij.openapi.Disposable;
 import org.jetbrains.kotlin.config.CommonConfigurationKeys;
 import org.jetbrains.kotlin.config.CompilerConfiguration;
 import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmProtoBufUtil;
@@ -21,6 +22,14 @@ public class EnvironmentManager {
      * Creates KotlinCoreEnvironment with specified classpath.
      */
     public static KotlinCoreEnvironment createKotlinCoreEnvironment(Set<File> libraries) {
+        return createKotlinCoreEnvironment(() -> {
+        }, libraries);
+    }
+
+    /**
+     * Creates KotlinCoreEnvironment with specified classpath, which is disposed together with the parent disposable.
+     */
+    public static KotlinCoreEnvironment createKotlinCoreEnvironment(Disposable parentDisposable, Set<File> libraries) {
         UtilKt.setIdeaIoUseFallback();
 
         CompilerConfiguration configuration = new CompilerConfiguration();
@@ -29,8 +38,8 @@ public class EnvironmentManager {
         JvmContentRootsKt.addJvmClasspathRoots(configuration, files);
         configuration.put(CommonConfigurationKeys.MODULE_NAME, JvmProtoBufUtil.DEFAULT_MODULE_NAME);
         configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.Companion.getNONE());
-        return KotlinCoreEnvironment.createForProduction(() -> {
-        }, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES);
+        return KotlinCoreEnvironment.createForProduction(parentDisposable, configuration,
+            EnvironmentConfigFiles.JVM_CONFIG_FILES);
     }
 
 }
@@ -0,0 +1,184 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.PrettyPrinter;
+import org.jetbrains.research.kotlinrminer.cli.GitHistoryKotlinRMiner;
+import org.jetbrains.research.kotlinrminer.cli.Refactoring;
+import org.jetbrains.research.kotlinrminer.cli.diff.CodeRange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Streams the detection results in the JSON format, flushing every commit as soon as it is written.
+ * By default, the commits form the "commits" array of a single JSON object, one commit after another
+ * with the fields of the commits indented by a tab (see {@link CommitLayout}).
+ * In the newline-delimited mode, every commit is a separate JSON object on its own line.
+ */
+public class JsonCommitWriter implements Closeable {
+    private final JsonGenerator generator;
+    private final boolean newlineDelimited;
+
+    /**
+     * @param out The stream to write to. It is flushed after every commit, but is not closed by the writer.
+     */
+    public JsonCommitWriter(OutputStream out, boolean newlineDelimited) throws IOException {
+        this.generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.newlineDelimited = newlineDelimited;
+        if (!newlineDelimited) {
+            generator.setPrettyPrinter(new CommitLayout());
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("commits");
+        }
+    }
+
+    public void writeCommit(String cloneURL,
+                            String currentCommitId,
+                            List<Refactoring> refactoringsAtRevision,
+                            boolean ktFilesChanged) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("repository", cloneURL);
+        generator.writeStringField("sha1", currentCommitId);
+        generator.writeStringField("url", GitHistoryKotlinRMiner.extractCommitURL(cloneURL, currentCommitId));
+        generator.writeStringField("ktFilesChanged", String.valueOf(ktFilesChanged));
+        generator.writeArrayFieldStart("refactorings");
+        for (Refactoring refactoring : refactoringsAtRevision) {
+            writeRefactoring(refactoring);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        if (newlineDelimited) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    private void writeRefactoring(Refactoring refactoring) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", refactoring.getName());
+        generator.writeStringField("description", refactoring.toString().replace('\t', ' '));
+        generator.writeArrayFieldStart("leftSideLocations");
+        for (CodeRange codeRange : refactoring.leftSide()) {
+            writeCodeRange(codeRange);
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("rightSideLocations");
+        for (CodeRange codeRange : refactoring.rightSide()) {
+            writeCodeRange(codeRange);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void writeCodeRange(CodeRange codeRange) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("filePath", codeRange.getFilePath());
+        generator.writeNumberField("startLine", codeRange.getStartLine());
+        generator.writeNumberField("endLine", codeRange.getEndLine());
+        generator.writeNumberField("startColumn", codeRange.getStartColumn());
+        generator.writeNumberField("endColumn", codeRange.getEndColumn());
+        generator.writeStringField("codeElementType", codeRange.getCodeElementType().name());
+        generator.writeStringField("description", codeRange.getDescription());
+        generator.writeStringField("codeElement", codeRange.getCodeElement());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Completes the JSON document and flushes the output.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!newlineDelimited) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    /**
+     * Lays out the document depending on the nesting level: the root object, the commits, the refactorings and
+     * the code ranges. Every field starts on a new line, indented by a tab in the commits and the refactorings and
+     * by two tabs in the code ranges, while the fields of the root object are not indented. The commits and
+     * the refactorings are separated by a comma and a line break, and the code ranges by a comma and a space.
+     * Every object ends with a closing brace on its own line, as in {@link Refactoring#toJSON()} and
+     * {@link CodeRange#toString()}.
+     */
+    private static class CommitLayout implements PrettyPrinter {
+        private static final int ROOT = 1;
+        private static final int COMMIT = 2;
+        private static final int REFACTORING = 3;
+        private int objectDepth;
+
+        @Override
+        public void writeRootValueSeparator(JsonGenerator g) {
+        }
+
+        @Override
+        public void writeStartObject(JsonGenerator g) throws IOException {
+            g.writeRaw('{');
+            objectDepth++;
+        }
+
+        @Override
+        public void beforeObjectEntries(JsonGenerator g) throws IOException {
+            g.writeRaw(entryIndentation());
+        }
+
+        @Override
+        public void writeObjectFieldValueSeparator(JsonGenerator g) throws IOException {
+            g.writeRaw(": ");
+        }
+
+        @Override
+        public void writeObjectEntrySeparator(JsonGenerator g) throws IOException {
+            g.writeRaw(',');
+            g.writeRaw(entryIndentation());
+        }
+
+        @Override
+        public void writeEndObject(JsonGenerator g, int nrOfEntries) throws IOException {
+            objectDepth--;
+            g.writeRaw("\n}");
+        }
+
+        @Override
+        public void writeStartArray(JsonGenerator g) throws IOException {
+            g.writeRaw('[');
+        }
+
+        @Override
+        public void beforeArrayValues(JsonGenerator g) throws IOException {
+            if (objectDepth == ROOT) {
+                g.writeRaw('\n');
+            }
+        }
+
+        @Override
+        public void writeArrayValueSeparator(JsonGenerator g) throws IOException {
+            g.writeRaw(objectDepth == REFACTORING ? ", " : ",\n");
+        }
+
+        @Override
+        public void writeEndArray(JsonGenerator g, int nrOfValues) throws IOException {
+            if (objectDepth == ROOT && nrOfValues == 0) {
+                g.writeRaw('\n');
+            } else if (objectDepth == COMMIT && nrOfValues > 0) {
+                g.writeRaw('\n');
+            }
+            g.writeRaw(']');
+        }
+
+        private String entryIndentation() {
+            if (objectDepth == ROOT) {
+                return "\n";
+            }
+            return objectDepth > REFACTORING ? "\n\t\t" : "\n\t";
+        }
+    }
+}
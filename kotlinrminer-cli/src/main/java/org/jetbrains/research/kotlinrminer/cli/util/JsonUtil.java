@@ -1,54 +0,0 @@
-package org.jetbrains.research.kotlinrminer.cli.util;
-
-import org.jetbrains.research.kotlinrminer.cli.GitHistoryKotlinRMiner;
-import org.jetbrains.research.kotlinrminer.cli.Refactoring;
-
-import java.util.List;
-
-/**
- * Presents the detection results in the JSON format.
- */
-public class JsonUtil {
-
-    public static void commitJSON(StringBuilder sb,
-                                  String cloneURL,
-                                  String currentCommitId,
-                                  List<Refactoring> refactoringsAtRevision,
-                                  boolean ktFilesChanged) {
-        sb.append("{").append("\n");
-        sb.append("\t").append("\"").append("repository").append("\"").append(": ").append("\"").append(
-            cloneURL).append("\"").append(",").append("\n");
-        sb.append("\t").append("\"").append("sha1").append("\"").append(": ").append("\"").append(
-            currentCommitId).append("\"").append(",").append("\n");
-        String url = GitHistoryKotlinRMiner.extractCommitURL(cloneURL, currentCommitId);
-        sb.append("\t").append("\"").append("url").append("\"").append(": ").append("\"").append(url).append(
-            "\"").append(",").append("\n");
-        sb.append("\t").append("\"").append("ktFilesChanged").append("\"").append(": ").append("\"").append(
-            ktFilesChanged).append("\"").append(",").append("\n");
-        sb.append("\t").append("\"").append("refactorings").append("\"").append(": ");
-        sb.append("[");
-        int counter = 0;
-        for (Refactoring refactoring : refactoringsAtRevision) {
-            sb.append(refactoring.toJSON());
-            if (counter < refactoringsAtRevision.size() - 1) {
-                sb.append(",");
-            }
-            sb.append("\n");
-            counter++;
-        }
-        sb.append("]").append("\n");
-        sb.append("}");
-    }
-
-    public static void startJSON(StringBuilder sb) {
-        sb.append("{").append("\n");
-        sb.append("\"").append("commits").append("\"").append(": ");
-        sb.append("[").append("\n");
-    }
-
-    public static void endJSON(StringBuilder sb) {
-        sb.append("]").append("\n");
-        sb.append("}");
-    }
-
-}
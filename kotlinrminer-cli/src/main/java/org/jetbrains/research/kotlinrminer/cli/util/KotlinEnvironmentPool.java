@@ -0,0 +1,128 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment;
+import org.jetbrains.kotlin.com.intellij.openapi.Disposable;
+import org.jetbrains.kotlin.com.intellij.openapi.util.Disposer;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Keeps long-lived KotlinCoreEnvironments, so that they are created once per miner run instead of once per parsed file.
+ * Environments are pooled by classpath and handed out to one thread at a time.
+ * All of them are disposed together with the pool.
+ */
+public class KotlinEnvironmentPool implements Disposable {
+    private final Disposable rootDisposable = Disposer.newDisposable("kotlinRMiner environment pool");
+    private final Map<Set<File>, Deque<KotlinCoreEnvironment>> idleEnvironments = new HashMap<>();
+    private final Map<KotlinCoreEnvironment, Disposable> environmentDisposables = new IdentityHashMap<>();
+    private final int maxIdleEnvironments;
+    private boolean disposed;
+
+    public KotlinEnvironmentPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxIdleEnvironments The maximum number of environments kept for reuse per classpath.
+     */
+    public KotlinEnvironmentPool(int maxIdleEnvironments) {
+        if (maxIdleEnvironments < 1) {
+            throw new IllegalArgumentException("maxIdleEnvironments must be positive: " + maxIdleEnvironments);
+        }
+        this.maxIdleEnvironments = maxIdleEnvironments;
+    }
+
+    /**
+     * Takes an environment with the specified classpath out of the pool, creating a new one if none is idle.
+     * The environment must be used by a single thread and returned by closing the lease.
+     */
+    public Lease acquire(Set<File> classpath) {
+        Set<File> key = Collections.unmodifiableSet(new HashSet<>(classpath));
+        Disposable environmentDisposable;
+        synchronized (this) {
+            checkNotDisposed();
+            Deque<KotlinCoreEnvironment> idle = idleEnvironments.get(key);
+            KotlinCoreEnvironment environment = idle == null ? null : idle.pollFirst();
+            if (environment != null) {
+                return new Lease(key, environment);
+            }
+            environmentDisposable = Disposer.newDisposable("kotlinRMiner environment");
+            Disposer.register(rootDisposable, environmentDisposable);
+        }
+        KotlinCoreEnvironment environment =
+            EnvironmentManager.createKotlinCoreEnvironment(environmentDisposable, key);
+        synchronized (this) {
+            if (disposed) {
+                //the pool was disposed while the environment was created, possibly under the disposed root
+                Disposer.dispose(environmentDisposable);
+                checkNotDisposed();
+            }
+            environmentDisposables.put(environment, environmentDisposable);
+        }
+        return new Lease(key, environment);
+    }
+
+    private synchronized void release(Set<File> classpath, KotlinCoreEnvironment environment) {
+        if (disposed) {
+            return;
+        }
+        Deque<KotlinCoreEnvironment> idle = idleEnvironments.computeIfAbsent(classpath, k -> new ArrayDeque<>());
+        if (idle.size() < maxIdleEnvironments) {
+            idle.addFirst(environment);
+        } else {
+            Disposable environmentDisposable = environmentDisposables.remove(environment);
+            if (environmentDisposable != null) {
+                Disposer.dispose(environmentDisposable);
+            }
+        }
+    }
+
+    private void checkNotDisposed() {
+        if (disposed) {
+            throw new IllegalStateException("Environment pool is already disposed");
+        }
+    }
+
+    /**
+     * Disposes all environments created by the pool. Leases must not be used afterwards.
+     */
+    @Override
+    public synchronized void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        idleEnvironments.clear();
+        environmentDisposables.clear();
+        Disposer.dispose(rootDisposable);
+    }
+
+    /**
+     * Exclusive use of a pooled environment, which goes back to the pool on close.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Set<File> classpath;
+        private KotlinCoreEnvironment environment;
+
+        private Lease(Set<File> classpath, KotlinCoreEnvironment environment) {
+            this.classpath = classpath;
+            this.environment = environment;
+        }
+
+        public KotlinCoreEnvironment getEnvironment() {
+            if (environment == null) {
+                throw new IllegalStateException("Lease is already closed");
+            }
+            return environment;
+        }
+
+        @Override
+        public void close() {
+            if (environment != null) {
+                release(classpath, environment);
+                environment = null;
+            }
+        }
+    }
+}
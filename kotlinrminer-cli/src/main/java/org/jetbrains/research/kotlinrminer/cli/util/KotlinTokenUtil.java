@@ -0,0 +1,60 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.jetbrains.kotlin.com.intellij.psi.tree.IElementType;
+import org.jetbrains.kotlin.lexer.KotlinLexer;
+import org.jetbrains.kotlin.lexer.KtTokens;
+
+/**
+ * Compares Kotlin sources on the level of tokens, without parsing them.
+ */
+public class KotlinTokenUtil {
+
+    /**
+     * @return True if the two sources consist of the same tokens and differ only in whitespace and comments.
+     * Since a line break can end a statement in Kotlin, the sources must have line breaks between the same tokens.
+     */
+    public static boolean differOnlyInFormatting(String source, String otherSource) {
+        return normalizeFormatting(source).equals(normalizeFormatting(otherSource));
+    }
+
+    /**
+     * Replaces every run of whitespace and comments between two tokens with a single line break if it contains one,
+     * or with a single space otherwise. The runs before the first token and after the last one are removed, since
+     * they cannot separate statements.
+     */
+    public static String normalizeFormatting(String source) {
+        StringBuilder sb = new StringBuilder(source.length());
+        KotlinLexer lexer = new KotlinLexer();
+        lexer.start(source);
+        boolean inSeparator = false;
+        boolean separatorHasLineBreak = false;
+        IElementType tokenType;
+        while ((tokenType = lexer.getTokenType()) != null) {
+            if (tokenType == KtTokens.WHITE_SPACE || KtTokens.COMMENTS.contains(tokenType)) {
+                inSeparator = true;
+                separatorHasLineBreak |= containsLineBreak(source, lexer.getTokenStart(), lexer.getTokenEnd());
+            } else {
+                if (inSeparator) {
+                    if (sb.length() > 0) {
+                        sb.append(separatorHasLineBreak ? '\n' : ' ');
+                    }
+                    inSeparator = false;
+                    separatorHasLineBreak = false;
+                }
+                sb.append(source, lexer.getTokenStart(), lexer.getTokenEnd());
+            }
+            lexer.advance();
+        }
+        return sb.toString();
+    }
+
+    private static boolean containsLineBreak(String source, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.jetbrains.kotlin.com.intellij.openapi.editor.Document;
+import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
+import org.jetbrains.kotlin.psi.KtFile;
+
+import java.util.Arrays;
+
+/**
+ * Converts offsets in the document of a file to lines and columns with a binary search over the line starts.
+ * The index is built once per file and kept in its user data.
+ */
+public class LineIndex {
+    private static final Key<LineIndex> LINE_INDEX_KEY = Key.create("kotlinRMiner.lineIndex");
+
+    private final int[] lineStarts;
+
+    private LineIndex(CharSequence text) {
+        int lineCount = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lineCount++;
+            }
+        }
+        lineStarts = new int[lineCount];
+        int line = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lineStarts[line++] = i + 1;
+            }
+        }
+    }
+
+    /**
+     * @return The line index of the document of the file, or null if the file has no document.
+     */
+    public static LineIndex getInstance(KtFile ktFile) {
+        LineIndex lineIndex = ktFile.getUserData(LINE_INDEX_KEY);
+        if (lineIndex == null) {
+            Document document = ktFile.getViewProvider().getDocument();
+            if (document == null) {
+                return null;
+            }
+            lineIndex = new LineIndex(document.getCharsSequence());
+            ktFile.putUserData(LINE_INDEX_KEY, lineIndex);
+        }
+        return lineIndex;
+    }
+
+    /**
+     * @return The 0-based number of the line that contains the offset.
+     */
+    public int getLineNumber(int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * @return The 0-based column of the offset in its line.
+     */
+    public int getColumn(int offset) {
+        return offset - lineStarts[getLineNumber(offset)];
+    }
+}
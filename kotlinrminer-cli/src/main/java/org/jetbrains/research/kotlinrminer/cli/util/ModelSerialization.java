@@ -0,0 +1,299 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Writes and reads the file models of the parse cache in a compact form of the Java serialization.
+ * The descriptors of the model classes are written as indexes into a table of these classes, and the descriptors
+ * of the other classes as their names, instead of the full lists of their fields. So the stream can only be read
+ * by the same build of the parser, which is ensured by the parser version of the cache entries.
+ * On reading, every class that is not a model class, a boxed primitive or a JDK collection is rejected.
+ * <p>
+ * The model and parser classes are found in the uml and decomposition packages of the build itself,
+ * so that they are never out of date. Only the classes used by the detection rules are excluded,
+ * which keeps the cache valid when the rules change.
+ */
+public final class ModelSerialization {
+    private static final String[] PARSER_PACKAGES = {
+        "org.jetbrains.research.kotlinrminer.cli.uml", "org.jetbrains.research.kotlinrminer.cli.decomposition"
+    };
+    /**
+     * The parser classes outside of the parser packages, with their nested classes.
+     */
+    private static final String[] PARSER_CLASS_NAMES = {
+        "org.jetbrains.research.kotlinrminer.cli.UMLModelPsiReaderCli",
+        "org.jetbrains.research.kotlinrminer.cli.util.LineIndex"
+    };
+    /**
+     * The classes of the parser packages that are used only to compare models, so they do not affect stored models.
+     * A detection class missing here only makes the cache entries invalid more often than needed.
+     */
+    private static final Set<String> DETECTION_CLASSES = new HashSet<>(Arrays.asList(
+        "org.jetbrains.research.kotlinrminer.cli.uml.UMLModel",
+        "org.jetbrains.research.kotlinrminer.cli.uml.UMLClassMatcher",
+        "org.jetbrains.research.kotlinrminer.cli.uml.ClassMemberIndex",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.AbstractCodeMapping",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.LeafMapping",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.CompositeStatementObjectMapping",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.UMLOperationBodyMapper",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.UMLOperationBodyMapperComparator",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.TypeReplacementAnalysis",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.VariableReplacementAnalysis",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.VariableReferenceExtractor",
+        "org.jetbrains.research.kotlinrminer.cli.decomposition.ArgumentizedStrings"
+    ));
+    /**
+     * The JDK classes that can be stored in the models besides the model classes.
+     */
+    private static final Set<Class<?>> JDK_CLASSES = new HashSet<>(Arrays.asList(
+        String.class, Boolean.class, Character.class, Number.class, Byte.class, Short.class, Integer.class,
+        Long.class, Float.class, Double.class, Enum.class,
+        ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class, TreeMap.class,
+        HashSet.class, LinkedHashSet.class, TreeSet.class
+    ));
+    /**
+     * The name prefixes of the JDK classes that implement the empty, singleton, unmodifiable and immutable
+     * collections, and of the serial form of the immutable ones.
+     */
+    private static final String[] JDK_COLLECTION_PREFIXES = {
+        "java.util.Collections$", "java.util.ImmutableCollections$", "java.util.Arrays$", "java.util.CollSer"
+    };
+    private static final int STREAM_VERSION = 1;
+    private static final int FULL_DESCRIPTOR = 0;
+    private static final int MODEL_CLASS_DESCRIPTOR = 1;
+    private static final int NAMED_CLASS_DESCRIPTOR = 2;
+
+    private static List<Class<?>> parserClasses;
+    private static List<Class<?>> modelClasses;
+    private static Map<Class<?>, Integer> modelClassIndexes;
+
+    /**
+     * Rejects every class that cannot be a part of a stored model, so that the files of the cache directory
+     * cannot make the miner deserialize arbitrary classes from its classpath.
+     */
+    private static final ObjectInputFilter MODEL_FILTER = info -> {
+        Class<?> serialClass = info.serialClass();
+        if (serialClass == null) {
+            return ObjectInputFilter.Status.UNDECIDED;
+        }
+        return isAllowed(serialClass) ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    };
+
+    private ModelSerialization() {
+    }
+
+    public static ObjectOutputStream newOutputStream(OutputStream out) throws IOException {
+        return new ModelOutputStream(out);
+    }
+
+    public static ObjectInputStream newInputStream(InputStream in) throws IOException {
+        ObjectInputStream objects = new ModelInputStream(in);
+        objects.setObjectInputFilter(MODEL_FILTER);
+        return objects;
+    }
+
+    /**
+     * @return The classes whose bytecode defines the parser version: the classes of the parser packages
+     * except the detection ones, ordered by name.
+     */
+    public static synchronized List<Class<?>> getParserClasses() {
+        if (parserClasses == null) {
+            List<Class<?>> classes = new ArrayList<>();
+            for (String packageName : PARSER_PACKAGES) {
+                for (Class<?> packageClass : findClasses(packageName)) {
+                    if (!DETECTION_CLASSES.contains(topLevelName(packageClass.getName()))) {
+                        classes.add(packageClass);
+                    }
+                }
+            }
+            for (String className : PARSER_CLASS_NAMES) {
+                for (Class<?> packageClass : findClasses(className.substring(0, className.lastIndexOf('.')))) {
+                    if (topLevelName(packageClass.getName()).equals(className)) {
+                        classes.add(packageClass);
+                    }
+                }
+            }
+            classes.add(CodeElementType.class);
+            classes.sort(Comparator.comparing(Class::getName));
+            parserClasses = Collections.unmodifiableList(classes);
+        }
+        return parserClasses;
+    }
+
+    /**
+     * @return The serializable classes and enums of the parser, in the order of their indexes in the streams.
+     */
+    static synchronized List<Class<?>> getModelClasses() {
+        if (modelClasses == null) {
+            List<Class<?>> classes = new ArrayList<>();
+            Map<Class<?>, Integer> indexes = new HashMap<>();
+            for (Class<?> parserClass : getParserClasses()) {
+                if (Serializable.class.isAssignableFrom(parserClass) && !parserClass.isInterface()) {
+                    indexes.put(parserClass, classes.size());
+                    classes.add(parserClass);
+                }
+            }
+            modelClasses = Collections.unmodifiableList(classes);
+            modelClassIndexes = indexes;
+        }
+        return modelClasses;
+    }
+
+    private static synchronized Integer modelClassIndex(Class<?> modelClass) {
+        getModelClasses();
+        return modelClassIndexes.get(modelClass);
+    }
+
+    private static boolean isAllowed(Class<?> serialClass) {
+        if (serialClass.isArray()) {
+            // The elements of the arrays are checked separately, the array types are checked by the JDK collections
+            Class<?> componentType = serialClass.getComponentType();
+            return componentType.isPrimitive() || componentType == Object.class || componentType == Map.Entry.class ||
+                isAllowed(componentType);
+        }
+        if (JDK_CLASSES.contains(serialClass) || modelClassIndex(serialClass) != null) {
+            return true;
+        }
+        if (serialClass.getClassLoader() == null) {
+            String className = serialClass.getName();
+            for (String prefix : JDK_COLLECTION_PREFIXES) {
+                if (className.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String topLevelName(String className) {
+        int nestedClassStart = className.indexOf('$');
+        return nestedClassStart < 0 ? className : className.substring(0, nestedClassStart);
+    }
+
+    /**
+     * @return The classes of the package, excluding its subpackages, from the directory or jar of this class.
+     */
+    private static List<Class<?>> findClasses(String packageName) {
+        String packagePath = packageName.replace('.', '/') + '/';
+        List<String> classNames = new ArrayList<>();
+        CodeSource codeSource = ModelSerialization.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            throw new IllegalStateException("Cannot find the classes of " + packageName);
+        }
+        try {
+            URL location = codeSource.getLocation();
+            File source = new File(location.toURI());
+            if (source.isDirectory()) {
+                String[] fileNames = new File(source, packagePath).list();
+                if (fileNames != null) {
+                    for (String fileName : fileNames) {
+                        if (fileName.endsWith(".class")) {
+                            classNames.add(packageName + '.' + fileName.substring(0, fileName.length() - 6));
+                        }
+                    }
+                }
+            } else {
+                try (JarFile jar = new JarFile(source)) {
+                    for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                        String entryName = entries.nextElement().getName();
+                        if (entryName.startsWith(packagePath) && entryName.endsWith(".class") &&
+                            entryName.indexOf('/', packagePath.length()) < 0) {
+                            classNames.add(entryName.substring(0, entryName.length() - 6).replace('/', '.'));
+                        }
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalStateException("Cannot find the classes of " + packageName, e);
+        }
+        Collections.sort(classNames);
+        List<Class<?>> classes = new ArrayList<>();
+        ClassLoader classLoader = ModelSerialization.class.getClassLoader();
+        for (String className : classNames) {
+            try {
+                classes.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Cannot load " + className, e);
+            }
+        }
+        if (classes.isEmpty()) {
+            throw new IllegalStateException("Cannot find the classes of " + packageName);
+        }
+        return classes;
+    }
+
+    private static class ModelOutputStream extends ObjectOutputStream {
+        private ModelOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeStreamHeader() throws IOException {
+            writeByte(STREAM_VERSION);
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            Class<?> descClass = desc.forClass();
+            Integer index = modelClassIndex(descClass);
+            if (index != null && !descClass.isEnum()) {
+                write(MODEL_CLASS_DESCRIPTOR);
+                writeShort(index);
+            } else if (descClass.isPrimitive() || descClass.isArray() || descClass.isInterface() ||
+                desc.getSerialVersionUID() == 0) {
+                write(FULL_DESCRIPTOR);
+                super.writeClassDescriptor(desc);
+            } else {
+                write(NAMED_CLASS_DESCRIPTOR);
+                writeUTF(desc.getName());
+            }
+        }
+    }
+
+    private static class ModelInputStream extends ObjectInputStream {
+        private ModelInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected void readStreamHeader() throws IOException {
+            int version = readByte();
+            if (version != STREAM_VERSION) {
+                throw new StreamCorruptedException("Unsupported model stream version: " + version);
+            }
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            int type = read();
+            switch (type) {
+                case FULL_DESCRIPTOR:
+                    return super.readClassDescriptor();
+                case MODEL_CLASS_DESCRIPTOR:
+                    int index = readUnsignedShort();
+                    List<Class<?>> classes = getModelClasses();
+                    if (index >= classes.size()) {
+                        throw new StreamCorruptedException("Unknown model class: " + index);
+                    }
+                    return ObjectStreamClass.lookup(classes.get(index));
+                case NAMED_CLASS_DESCRIPTOR:
+                    String className = readUTF();
+                    Class<?> namedClass = Class.forName(className, false, ModelSerialization.class.getClassLoader());
+                    if (!isAllowed(namedClass)) {
+                        throw new InvalidClassException(className, "not a model class");
+                    }
+                    return ObjectStreamClass.lookup(namedClass);
+                default:
+                    throw new StreamCorruptedException("Unknown class descriptor type: " + type);
+            }
+        }
+    }
+}
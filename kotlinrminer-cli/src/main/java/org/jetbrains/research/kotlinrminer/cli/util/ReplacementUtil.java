@@ -2,30 +2,35 @@ package org.jetbrains.research.kotlinrminer.cli.util;
 
 import org.jetbrains.research.kotlinrminer.cli.decomposition.UMLOperationBodyMapper;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+/**
+ * Replaces and counts the occurrences of names in statements that are delimited by special characters.
+ * The occurrences are found by scanning the strings, without building a pattern for every call.
+ */
 public class ReplacementUtil {
-    private static final String[] SPECIAL_CHARACTERS =
-        {";", ",", ")", "=", "+", "-", ">", "<", ".", "]", " ", "(", "["};
-    private static final String[] SPECIAL_ARGUMENT_CHARACTERS =
-        {";", ",", ")", "=", "+", "-", ">", "<", ".", "]", " "};
+    private static final char[] SPECIAL_CHARACTERS =
+        {';', ',', ')', '=', '+', '-', '>', '<', '.', ']', ' ', '(', '['};
+    private static final char[] SPECIAL_ARGUMENT_CHARACTERS =
+        {';', ',', ')', '=', '+', '-', '>', '<', '.', ']', ' '};
+    private static final int NO_CHARACTER = -1;
 
     public static int countInstances(String completeString, String subString) {
-        for (String character : SPECIAL_CHARACTERS) {
-            int index = completeString.indexOf(subString + character);
-            if (index != -1) {
-                return
-                    (completeString.length() - completeString.replace(subString + character, "").length()) /
-                        (subString.length() + 1);
+        for (char character : SPECIAL_CHARACTERS) {
+            int count = 0;
+            int index = indexOfFollowedBy(completeString, subString, character, 0);
+            while (index != -1) {
+                count++;
+                index = indexOfFollowedBy(completeString, subString, character, index + subString.length() + 1);
+            }
+            if (count > 0) {
+                return count;
             }
         }
         return 0;
     }
 
     public static boolean contains(String completeString, String subString) {
-        for (String character : SPECIAL_CHARACTERS) {
-            if (completeString.contains(subString + character)) {
+        for (char character : SPECIAL_CHARACTERS) {
+            if (indexOfFollowedBy(completeString, subString, character, 0) != -1) {
                 return true;
             }
         }
@@ -35,8 +40,8 @@ public class ReplacementUtil {
     public static String performArgumentReplacement(String completeString, String subString,
                                                     String replacement) {
         String temp = completeString;
-        for (String character : SPECIAL_ARGUMENT_CHARACTERS) {
-            if (completeString.contains(subString + character)) {
+        for (char character : SPECIAL_ARGUMENT_CHARACTERS) {
+            if (indexOfFollowedBy(completeString, subString, character, 0) != -1) {
                 temp = temp.replace(subString + character, replacement + character);
             }
         }
@@ -47,8 +52,8 @@ public class ReplacementUtil {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < input.length(); i++) {
             char c = input.charAt(i);
-            for (String character : SPECIAL_CHARACTERS) {
-                if (character.equals(Character.toString(c))) {
+            for (char character : SPECIAL_CHARACTERS) {
+                if (character == c) {
                     sb.append(c);
                     break;
                 }
@@ -65,15 +70,15 @@ public class ReplacementUtil {
             return temp;
         }
         boolean replacementDone = false;
-        for (String character : SPECIAL_CHARACTERS) {
-            if (completeString.contains(subString + character)) {
+        for (char character : SPECIAL_CHARACTERS) {
+            if (indexOfFollowedBy(completeString, subString, character, 0) != -1) {
                 temp = temp.replace(subString + character, replacement + character);
                 replacementDone = true;
             }
         }
         if (!replacementDone) {
-            for (String character : SPECIAL_CHARACTERS) {
-                if (completeString.contains(character + subString)) {
+            for (char character : SPECIAL_CHARACTERS) {
+                if (indexOfPrecededBy(completeString, subString, character, 0) != -1) {
                     temp = temp.replace(character + subString, character + replacement);
                 }
             }
@@ -85,52 +90,52 @@ public class ReplacementUtil {
                                             String subString1, String subString2) {
         String temp = completeString1;
         boolean replacementOccurred = false;
-        for (String character : SPECIAL_CHARACTERS) {
-            if (temp.contains(subString1 + character) &&
-                completeString2.contains(subString2 + character)) {
-                StringBuffer sb = new StringBuffer();
-                Pattern p1 = Pattern.compile(Pattern.quote(subString1 + character));
-                Matcher m1 = p1.matcher(temp);
-                Pattern p2 = Pattern.compile(Pattern.quote(subString2 + character));
-                Matcher m2 = p2.matcher(completeString2);
-                while (m1.find() && m2.find()) {
-                    int start1 = m1.start();
-                    int start2 = m2.start();
-                    String characterBeforeMatch1 = start1 == 0 ? "" : String.valueOf(temp.charAt(start1 - 1));
-                    String characterBeforeMatch2 =
-                        start2 == 0 ? "" : String.valueOf(completeString2.charAt(start2 - 1));
+        for (char character : SPECIAL_CHARACTERS) {
+            int start1 = indexOfFollowedBy(temp, subString1, character, 0);
+            int start2 = indexOfFollowedBy(completeString2, subString2, character, 0);
+            if (start1 != -1 && start2 != -1) {
+                StringBuilder sb = new StringBuilder();
+                int appendPosition = 0;
+                while (start1 != -1 && start2 != -1) {
+                    int characterBeforeMatch1 = start1 == 0 ? NO_CHARACTER : temp.charAt(start1 - 1);
+                    int characterBeforeMatch2 = start2 == 0 ? NO_CHARACTER : completeString2.charAt(start2 - 1);
+                    int end1 = start1 + subString1.length() + 1;
                     if (compatibleCharacterBeforeMatch(characterBeforeMatch1, characterBeforeMatch2)) {
-                        m1.appendReplacement(sb, Matcher.quoteReplacement(subString2 + character));
+                        sb.append(temp, appendPosition, start1).append(subString2).append(character);
+                        appendPosition = end1;
                         replacementOccurred = true;
                     }
+                    start1 = indexOfFollowedBy(temp, subString1, character, end1);
+                    start2 = indexOfFollowedBy(completeString2, subString2, character,
+                        start2 + subString2.length() + 1);
                 }
-                m1.appendTail(sb);
+                sb.append(temp, appendPosition, temp.length());
                 temp = sb.toString();
             }
         }
         if (!replacementOccurred &&
             !UMLOperationBodyMapper.containsMethodSignatureOfAnonymousClass(completeString1) &&
             !UMLOperationBodyMapper.containsMethodSignatureOfAnonymousClass(completeString2)) {
-            for (String character : SPECIAL_CHARACTERS) {
-                if (temp.contains(character + subString1) &&
-                    completeString2.contains(character + subString2)) {
-                    StringBuffer sb = new StringBuffer();
-                    Pattern p1 = Pattern.compile(Pattern.quote(character + subString1));
-                    Matcher m1 = p1.matcher(temp);
-                    Pattern p2 = Pattern.compile(Pattern.quote(character + subString2));
-                    Matcher m2 = p2.matcher(completeString2);
-                    while (m1.find() && m2.find()) {
-                        int end1 = m1.end();
-                        int end2 = m2.end();
-                        String characterAfterMatch1 =
-                            end1 == temp.length() ? "" : String.valueOf(temp.charAt(end1));
-                        String characterAfterMatch2 = end2 == completeString2.length() ? "" :
-                            String.valueOf(completeString2.charAt(end2));
+            for (char character : SPECIAL_CHARACTERS) {
+                int start1 = indexOfPrecededBy(temp, subString1, character, 0);
+                int start2 = indexOfPrecededBy(completeString2, subString2, character, 0);
+                if (start1 != -1 && start2 != -1) {
+                    StringBuilder sb = new StringBuilder();
+                    int appendPosition = 0;
+                    while (start1 != -1 && start2 != -1) {
+                        int end1 = start1 + subString1.length() + 1;
+                        int end2 = start2 + subString2.length() + 1;
+                        int characterAfterMatch1 = end1 == temp.length() ? NO_CHARACTER : temp.charAt(end1);
+                        int characterAfterMatch2 =
+                            end2 == completeString2.length() ? NO_CHARACTER : completeString2.charAt(end2);
                         if (compatibleCharacterAfterMatch(characterAfterMatch1, characterAfterMatch2)) {
-                            m1.appendReplacement(sb, Matcher.quoteReplacement(character + subString2));
+                            sb.append(temp, appendPosition, start1).append(character).append(subString2);
+                            appendPosition = end1;
                         }
+                        start1 = indexOfPrecededBy(temp, subString1, character, end1);
+                        start2 = indexOfPrecededBy(completeString2, subString2, character, end2);
                     }
-                    m1.appendTail(sb);
+                    sb.append(temp, appendPosition, temp.length());
                     temp = sb.toString();
                 }
             }
@@ -138,66 +143,84 @@ public class ReplacementUtil {
         return temp;
     }
 
-    private static boolean compatibleCharacterBeforeMatch(String characterBefore1,
-                                                          String characterBefore2) {
-        if (characterBefore1 != null && characterBefore2 != null) {
-            if (characterBefore1.equals(characterBefore2)) {
-                return true;
-            }
-            if (characterBefore1.equals(",") && characterBefore2.equals("(")) {
-                return true;
-            }
-            if (characterBefore1.equals("(") && characterBefore2.equals(",")) {
-                return true;
-            }
-            if (characterBefore1.equals(" ") && characterBefore2.equals("")) {
-                return true;
-            }
-            return characterBefore1.equals("") && characterBefore2.equals(" ");
+    /**
+     * @return The index of the first occurrence of the substring followed by the character, starting at the
+     * given index, or -1 if there is none. Same as {@code completeString.indexOf(subString + character, fromIndex)}.
+     */
+    private static int indexOfFollowedBy(String completeString, String subString, char character, int fromIndex) {
+        int index = completeString.indexOf(character, fromIndex + subString.length());
+        while (index != -1 && !completeString.startsWith(subString, index - subString.length())) {
+            index = completeString.indexOf(character, index + 1);
         }
-        return false;
+        return index == -1 ? -1 : index - subString.length();
     }
 
-    private static boolean compatibleCharacterAfterMatch(String characterAfter1,
-                                                         String characterAfter2) {
-        if (characterAfter1 != null && characterAfter2 != null) {
-            if (characterAfter1.equals(characterAfter2)) {
-                return true;
-            }
-            if (characterAfter1.equals(",") && characterAfter2.equals(")")) {
-                return true;
-            }
-            return characterAfter1.equals(")") && characterAfter2.equals(",");
+    /**
+     * @return The index of the first occurrence of the character followed by the substring, starting at the
+     * given index, or -1 if there is none. Same as {@code completeString.indexOf(character + subString, fromIndex)}.
+     */
+    private static int indexOfPrecededBy(String completeString, String subString, char character, int fromIndex) {
+        int index = completeString.indexOf(character, fromIndex);
+        while (index != -1 && !completeString.startsWith(subString, index + 1)) {
+            index = completeString.indexOf(character, index + 1);
         }
-        return false;
+        return index;
+    }
+
+    private static boolean compatibleCharacterBeforeMatch(int characterBefore1, int characterBefore2) {
+        if (characterBefore1 == characterBefore2) {
+            return true;
+        }
+        if (characterBefore1 == ',' && characterBefore2 == '(') {
+            return true;
+        }
+        if (characterBefore1 == '(' && characterBefore2 == ',') {
+            return true;
+        }
+        if (characterBefore1 == ' ' && characterBefore2 == NO_CHARACTER) {
+            return true;
+        }
+        return characterBefore1 == NO_CHARACTER && characterBefore2 == ' ';
+    }
+
+    private static boolean compatibleCharacterAfterMatch(int characterAfter1, int characterAfter2) {
+        if (characterAfter1 == characterAfter2) {
+            return true;
+        }
+        if (characterAfter1 == ',' && characterAfter2 == ')') {
+            return true;
+        }
+        return characterAfter1 == ')' && characterAfter2 == ',';
     }
 
     public static boolean sameCharsBeforeAfter(String completeString1, String completeString2,
                                                String commonSubString) {
-        Pattern p = Pattern.compile(Pattern.quote(commonSubString));
-        Matcher m1 = p.matcher(completeString1);
-        Matcher m2 = p.matcher(completeString2);
         int matches = 0;
         int compatibleMatches = 0;
-        while (m1.find() && m2.find()) {
-            int start1 = m1.start();
-            int start2 = m2.start();
-            String characterBeforeMatch1 =
-                start1 == 0 ? "" : String.valueOf(completeString1.charAt(start1 - 1));
-            String characterBeforeMatch2 =
-                start2 == 0 ? "" : String.valueOf(completeString2.charAt(start2 - 1));
-            int end1 = m1.end();
-            int end2 = m2.end();
-            String characterAfterMatch1 =
-                end1 == completeString1.length() ? "" : String.valueOf(completeString1.charAt(end1));
-            String characterAfterMatch2 =
-                end2 == completeString2.length() ? "" : String.valueOf(completeString2.charAt(end2));
-            if (characterBeforeMatch1.equals(characterBeforeMatch2) &&
-                characterAfterMatch1.equals(characterAfterMatch2)) {
+        int start1 = indexOf(completeString1, commonSubString, 0);
+        int start2 = indexOf(completeString2, commonSubString, 0);
+        while (start1 != -1 && start2 != -1) {
+            int characterBeforeMatch1 = start1 == 0 ? NO_CHARACTER : completeString1.charAt(start1 - 1);
+            int characterBeforeMatch2 = start2 == 0 ? NO_CHARACTER : completeString2.charAt(start2 - 1);
+            int end1 = start1 + commonSubString.length();
+            int end2 = start2 + commonSubString.length();
+            int characterAfterMatch1 = end1 == completeString1.length() ? NO_CHARACTER : completeString1.charAt(end1);
+            int characterAfterMatch2 = end2 == completeString2.length() ? NO_CHARACTER : completeString2.charAt(end2);
+            if (characterBeforeMatch1 == characterBeforeMatch2 && characterAfterMatch1 == characterAfterMatch2) {
                 compatibleMatches++;
             }
             matches++;
+            int step = Math.max(commonSubString.length(), 1);
+            start1 = indexOf(completeString1, commonSubString, start1 + step);
+            start2 = indexOf(completeString2, commonSubString, start2 + step);
         }
         return matches == compatibleMatches;
     }
+
+    /**
+     * Finds the next occurrence like a matcher does, which also matches an empty substring at the end.
+     */
+    private static int indexOf(String completeString, String subString, int fromIndex) {
+        return fromIndex > completeString.length() ? -1 : completeString.indexOf(subString, fromIndex);
+    }
 }
@@ -0,0 +1,107 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the directories of a git tree that contain Kotlin files, directly or in their sub-directories.
+ * The index keeps the number of Kotlin files under every directory of the last visited tree. The next tree is
+ * reached by applying the Kotlin files added and deleted between the two trees, so consecutive commits of a walk
+ * are not walked in full. The directory sets of the recently visited trees are kept, so that a commit and its parent
+ * share the same set.
+ */
+public class RepositoryDirectoryIndex {
+    private static final String KOTLIN_FILE_SUFFIX = ".kt";
+
+    private final int maxTrees;
+    private final Map<ObjectId, Set<String>> trees;
+    private final Map<String, Integer> kotlinFileCounts = new HashMap<>();
+    private ObjectId currentTree;
+
+    /**
+     * @param maxTrees The maximum number of directory sets of the recently visited trees kept in the index.
+     */
+    public RepositoryDirectoryIndex(int maxTrees) {
+        if (maxTrees < 1) {
+            throw new IllegalArgumentException("maxTrees must be positive: " + maxTrees);
+        }
+        this.maxTrees = maxTrees;
+        this.trees = new LinkedHashMap<ObjectId, Set<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, Set<String>> eldest) {
+                return size() > RepositoryDirectoryIndex.this.maxTrees;
+            }
+        };
+    }
+
+    /**
+     * @return The unmodifiable set of the paths of all directories of the tree that contain Kotlin files,
+     * including the parents of such directories.
+     */
+    public synchronized Set<String> getDirectories(ObjectReader reader, AnyObjectId treeId) throws IOException {
+        Set<String> directories = trees.get(treeId);
+        if (directories != null) {
+            return directories;
+        }
+        moveTo(reader, treeId);
+        directories = Collections.unmodifiableSet(new HashSet<>(kotlinFileCounts.keySet()));
+        trees.put(currentTree, directories);
+        return directories;
+    }
+
+    private void moveTo(ObjectReader reader, AnyObjectId treeId) throws IOException {
+        try (TreeWalk treeWalk = new TreeWalk(null, reader)) {
+            if (currentTree != null) {
+                treeWalk.addTree(currentTree);
+                treeWalk.setFilter(
+                    AndTreeFilter.create(TreeFilter.ANY_DIFF, PathSuffixFilter.create(KOTLIN_FILE_SUFFIX)));
+            } else {
+                treeWalk.setFilter(PathSuffixFilter.create(KOTLIN_FILE_SUFFIX));
+            }
+            int newTree = treeWalk.addTree(treeId);
+            int oldTree = newTree - 1;
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                if (oldTree >= 0 && isFile(treeWalk.getRawMode(oldTree))) {
+                    updateCounts(treeWalk.getPathString(), -1);
+                }
+                if (isFile(treeWalk.getRawMode(newTree))) {
+                    updateCounts(treeWalk.getPathString(), 1);
+                }
+            }
+            currentTree = treeId.copy();
+        } catch (IOException | RuntimeException e) {
+            // The counts may be partly updated, so the next tree is walked in full
+            kotlinFileCounts.clear();
+            currentTree = null;
+            throw e;
+        }
+    }
+
+    private static boolean isFile(int rawMode) {
+        return rawMode != FileMode.TYPE_MISSING && (rawMode & FileMode.TYPE_MASK) != FileMode.TYPE_TREE;
+    }
+
+    private void updateCounts(String filePath, int delta) {
+        int separator = filePath.lastIndexOf('/');
+        while (separator > 0) {
+            String directory = filePath.substring(0, separator);
+            kotlinFileCounts.merge(directory, delta, (count, change) -> count + change == 0 ? null : count + change);
+            separator = directory.lastIndexOf('/');
+        }
+    }
+}
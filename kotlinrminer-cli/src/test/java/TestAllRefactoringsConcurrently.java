@@ -0,0 +1,101 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jgit.lib.Repository;
+import org.jetbrains.research.kotlinrminer.cli.GitHistoryKotlinRMiner;
+import org.jetbrains.research.kotlinrminer.cli.GitService;
+import org.jetbrains.research.kotlinrminer.cli.RefactoringHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the commits of resources/data.json with concurrent parsing and mapping, and checks that the refactorings
+ * are the same, in the same order, as the ones detected with a single thread.
+ */
+public class TestAllRefactoringsConcurrently {
+    private static final int THREAD_COUNT = 4;
+
+    GitHistoryKotlinRMiner sequentialMiner = new GitHistoryKotlinRMiner();
+    GitHistoryKotlinRMiner concurrentMiner = createConcurrentMiner();
+    GitService gitService = new GitService();
+
+    @AfterEach
+    public void disposeMiners() {
+        sequentialMiner.dispose();
+        concurrentMiner.dispose();
+    }
+
+    @TestFactory
+    public Stream<DynamicTest> testAllRefactoringsConcurrently() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        String jsonFile = System.getProperty("user.dir") + "/src/test/resources/data.json";
+
+        List<TestAllRefactorings.CommitData> commits = mapper.readValue(new File(jsonFile),
+            mapper.getTypeFactory().constructCollectionType(List.class,
+                TestAllRefactorings.CommitData.class));
+
+        return commits
+            .stream()
+            .map(commitData -> DynamicTest.dynamicTest(
+                "Repository: " + commitData.repository + " hash: " + commitData.sha1
+                    .substring(0, 5),
+                () -> testCommit(commitData)
+            ));
+    }
+
+    private void testCommit(TestAllRefactorings.CommitData data) throws Exception {
+        String folder = "tmp" + "/"
+            + data.repository
+            .substring(data.repository.lastIndexOf('/') + 1, data.repository.lastIndexOf('.'));
+        try (Repository repo = gitService.cloneIfNotExists(folder, data.repository)) {
+            List<List<String>> sequentialResults = detect(sequentialMiner, repo, data.sha1);
+            List<List<String>> concurrentResults = detect(concurrentMiner, repo, data.sha1);
+            String url = data.repository.replaceAll("\\.git$", "") + "/commit/" + data.sha1;
+            System.out.println(url);
+            assertThat(concurrentResults).isEqualTo(sequentialResults);
+
+            Set<String> expected = data.refactorings
+                .stream()
+                .map(refactoring -> refactoring.description)
+                .collect(Collectors.toSet());
+            for (List<String> results : concurrentResults) {
+                assertThat(results).containsExactlyInAnyOrderElementsOf(expected);
+            }
+        }
+    }
+
+    /**
+     * @return The descriptions of the refactorings passed to the handler, in their order.
+     */
+    private static List<List<String>> detect(GitHistoryKotlinRMiner miner, Repository repo, String sha1) {
+        List<List<String>> detected = new ArrayList<>();
+        miner.detectAtCommit(repo, sha1, new RefactoringHandler() {
+            @Override
+            public void handle(String commitId,
+                               List<org.jetbrains.research.kotlinrminer.cli.Refactoring> refactorings,
+                               boolean ktFilesChanged) {
+                detected.add(refactorings
+                    .stream()
+                    .map(org.jetbrains.research.kotlinrminer.cli.Refactoring::toString)
+                    .collect(Collectors.toList()));
+            }
+        });
+        return detected;
+    }
+
+    private static GitHistoryKotlinRMiner createConcurrentMiner() {
+        GitHistoryKotlinRMiner miner = new GitHistoryKotlinRMiner();
+        miner.setParsingThreadCount(THREAD_COUNT);
+        miner.setMappingThreadCount(THREAD_COUNT);
+        return miner;
+    }
+}
@@ -0,0 +1,120 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class GitHistoryKotlinRMinerTest {
+    private final Map<String, String> fileContentsBefore = new HashMap<>();
+    private final Map<String, String> fileContentsCurrent = new HashMap<>();
+    private final Map<String, String> fileBlobIdsBefore = new HashMap<>();
+    private final Map<String, String> fileBlobIdsCurrent = new HashMap<>();
+
+    @Test
+    public void skipsFilesWithChangedCommentsOnly() {
+        addFile("A.kt", "class A {\n    fun f() = 1\n}\n",
+            "/**\n * Class A.\n */\nclass A {\n    // Returns one.\n    fun f() = 1\n}\n");
+        addFile("B.kt", "fun b() = 1 // old\n", "fun b() = 1 /* new */\n");
+        removeFormattingChanges(Collections.emptyMap());
+        assertTrue(fileContentsBefore.isEmpty());
+        assertTrue(fileContentsCurrent.isEmpty());
+        assertTrue(fileBlobIdsBefore.isEmpty());
+        assertTrue(fileBlobIdsCurrent.isEmpty());
+    }
+
+    @Test
+    public void keepsFilesWithChangedTokens() {
+        addFile("Separator.kt", "fun f() {\n    val a = 1\n    g(a)\n}\n", "fun f() {\n    val a = 1 g(a)\n}\n");
+        addFile("Operator.kt", "val c = a+b\n", "val c = a + b\n");
+        addFile("Template.kt", "val s = \"Hello, $name\"\n", "val s = \"Hello, ${name}!\"\n");
+        addFile("Raw.kt", "val s = \"\"\"\n    x\n\"\"\"\n", "val s = \"\"\"\n  x\n\"\"\"\n");
+        removeFormattingChanges(Collections.emptyMap());
+        assertEquals(4, fileContentsBefore.size());
+        assertEquals(fileContentsBefore.keySet(), fileContentsCurrent.keySet());
+        assertEquals(fileContentsBefore.keySet(), fileBlobIdsBefore.keySet());
+        assertEquals(fileContentsBefore.keySet(), fileBlobIdsCurrent.keySet());
+    }
+
+    @Test
+    public void keepsRenamedFiles() {
+        addFile("Old.kt", "class A\n", "// Moved.\nclass A\n");
+        addFile("New.kt", "class B\n", "// Moved.\nclass B\n");
+        removeFormattingChanges(Collections.singletonMap("Old.kt", "New.kt"));
+        assertTrue(fileContentsBefore.containsKey("Old.kt"));
+        assertTrue(fileContentsBefore.containsKey("New.kt"));
+    }
+
+    @Test
+    public void skipsFilesWithChangedModeOnly() {
+        addFile("A.kt", "class A\n", "class A\n");
+        removeFormattingChanges(Collections.emptyMap());
+        assertFalse(fileContentsBefore.containsKey("A.kt"));
+        assertFalse(fileContentsCurrent.containsKey("A.kt"));
+    }
+
+    @Test
+    public void parsesFilesOfMinedCommitOnce() throws Exception {
+        File directory = Files.createTempDirectory("kotlinrminer-repository").toFile();
+        GitHistoryKotlinRMiner miner = new GitHistoryKotlinRMiner();
+        try (Git git = Git.init().setDirectory(directory).call()) {
+            commitFile(git, "A.kt", "class A {\n    fun f(x: Int): Int {\n        val y = x * 2\n" +
+                "        return y + 1\n    }\n}\n");
+            RevCommit commit = commitFile(git, "A.kt", "class A {\n    fun g(x: Int): Int {\n" +
+                "        val y = x * 2\n        return y + 1\n    }\n}\n");
+            List<Refactoring> detected = new ArrayList<>();
+            long parsedFileCount = UMLModelPsiReaderCli.getParsedFileCount();
+            miner.detectAtCommit(git.getRepository(), commit.getName(), new RefactoringHandler() {
+                @Override
+                public void handle(String commitId, List<Refactoring> refactorings, boolean ktFilesChanged) {
+                    detected.addAll(refactorings);
+                }
+
+                @Override
+                public void handleException(String commitId, Exception e) {
+                    fail("Cannot analyze commit " + commitId, e);
+                }
+            });
+            // The renamed operation is found by mapping the bodies of both versions of the file
+            assertFalse(detected.isEmpty());
+            assertEquals(2, UMLModelPsiReaderCli.getParsedFileCount() - parsedFileCount);
+        } finally {
+            miner.dispose();
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    private static RevCommit commitFile(Git git, String filePath, String content) throws Exception {
+        File file = new File(git.getRepository().getWorkTree(), filePath);
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+        git.add().addFilepattern(filePath).call();
+        return git.commit().setMessage("Change " + filePath).setAuthor("Author", "author@example.com")
+            .setCommitter("Author", "author@example.com").call();
+    }
+
+    private void addFile(String filePath, String contentBefore, String contentCurrent) {
+        fileContentsBefore.put(filePath, contentBefore);
+        fileContentsCurrent.put(filePath, contentCurrent);
+        fileBlobIdsBefore.put(filePath, Integer.toHexString(contentBefore.hashCode()));
+        fileBlobIdsCurrent.put(filePath, Integer.toHexString(contentCurrent.hashCode()));
+    }
+
+    private void removeFormattingChanges(Map<String, String> renamedFilesHint) {
+        GitHistoryKotlinRMiner.removeFormattingChanges(renamedFilesHint, fileContentsBefore, fileContentsCurrent,
+            fileBlobIdsBefore, fileBlobIdsCurrent);
+    }
+}
@@ -0,0 +1,189 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.OperationInvocation;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLClass;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLModel;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
+import org.jetbrains.research.kotlinrminer.cli.util.ModelSerialization;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UMLModelDiskStoreTest {
+    private static final String BLOB_ID = "6f1ed002ab5595859014ebf0951522d9d6aa7f5a";
+    private static final String FILE_PATH = "src/main/kotlin/sample/Greeter.kt";
+    private static final String FILE_CONTENT = "package sample\n" +
+        "\n" +
+        "class Greeter(private val name: String) {\n" +
+        "    private val greeting = \"Hello\"\n" +
+        "\n" +
+        "    fun greet(times: Int): String {\n" +
+        "        val builder = StringBuilder()\n" +
+        "        for (i in 0 until times) {\n" +
+        "            builder.append(greeting).append(\", \").append(name)\n" +
+        "        }\n" +
+        "        return builder.toString()\n" +
+        "    }\n" +
+        "}\n";
+
+    private File directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("kotlinrminer-cache").toFile();
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void loadsStoredModel() throws Exception {
+        UMLModelDiskStore store = new UMLModelDiskStore(directory);
+        UMLModel model = parse();
+        store.store(BLOB_ID, FILE_PATH, model);
+
+        UMLModel loadedModel = store.load(BLOB_ID, FILE_PATH);
+        assertNotNull(loadedModel);
+        assertEquals(model.getClassList(), loadedModel.getClassList());
+        for (int i = 0; i < model.getClassList().size(); i++) {
+            UMLClass umlClass = model.getClassList().get(i);
+            UMLClass loadedClass = loadedModel.getClassList().get(i);
+            assertEquals(umlClass.getOperations(), loadedClass.getOperations());
+            assertEquals(umlClass.getAttributes(), loadedClass.getAttributes());
+        }
+        assertEquals(model.getGeneralizationList().size(), loadedModel.getGeneralizationList().size());
+        assertEquals(model.getFileList().size(), loadedModel.getFileList().size());
+        assertTrue(model.diff(loadedModel).getRefactorings().isEmpty());
+    }
+
+    @Test
+    public void materializesLoadedBody() throws Exception {
+        UMLModelDiskStore store = new UMLModelDiskStore(directory);
+        UMLModel model = parse();
+        store.store(BLOB_ID, FILE_PATH, model);
+
+        UMLOperation operation = findOperation(model, "greet");
+        UMLOperation loadedOperation = findOperation(store.load(BLOB_ID, FILE_PATH), "greet");
+        assertTrue(loadedOperation.hasBody());
+        assertNotNull(loadedOperation.getBody());
+        assertEquals(operation.statementCount(), loadedOperation.statementCount());
+        assertTrue(!invokedMethodNames(operation).isEmpty());
+        assertEquals(invokedMethodNames(operation), invokedMethodNames(loadedOperation));
+        assertEquals(operation.variableTypeMap().keySet(), loadedOperation.variableTypeMap().keySet());
+    }
+
+    @Test
+    public void ignoresTruncatedEntry() throws Exception {
+        UMLModelDiskStore store = new UMLModelDiskStore(directory);
+        store.store(BLOB_ID, FILE_PATH, parse());
+
+        File entry = findEntry();
+        try (RandomAccessFile file = new RandomAccessFile(entry, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+        assertNull(store.load(BLOB_ID, FILE_PATH));
+    }
+
+    @Test
+    public void ignoresEntryOfAnotherParserVersion() throws Exception {
+        UMLModelDiskStore store = new UMLModelDiskStore(directory);
+        store.store(BLOB_ID, FILE_PATH, parse());
+
+        UMLModelDiskStore otherVersionStore = new UMLModelDiskStore(directory, "another parser version");
+        assertNull(otherVersionStore.load(BLOB_ID, FILE_PATH));
+        assertNotNull(store.load(BLOB_ID, FILE_PATH));
+    }
+
+    @Test
+    public void rejectsEntryWithForeignClass() throws Exception {
+        UMLModelDiskStore store = new UMLModelDiskStore(directory);
+        store.store(BLOB_ID, FILE_PATH, parse());
+
+        File entry = findEntry();
+        byte[] header;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(entry))) {
+            header = new byte[8];
+            in.readFully(header);
+        }
+        try (OutputStream out = new FileOutputStream(entry)) {
+            out.write(header);
+            DeflaterOutputStream compressed = new DeflaterOutputStream(out);
+            ObjectOutputStream objects = ModelSerialization.newOutputStream(compressed);
+            objects.writeObject(FILE_PATH);
+            objects.writeObject(new ArrayList<>(Collections.singletonList(new ForeignObject())));
+            objects.flush();
+            compressed.finish();
+        }
+        ForeignObject.deserialized = false;
+        assertNull(store.load(BLOB_ID, FILE_PATH));
+        assertFalse(ForeignObject.deserialized);
+    }
+
+    private static UMLModel parse() throws IOException {
+        UMLModelPsiReaderCli reader = new UMLModelPsiReaderCli(Collections.emptySet());
+        reader.parseFiles(Collections.singletonMap(FILE_PATH, FILE_CONTENT));
+        return reader.getUmlModel();
+    }
+
+    private static UMLOperation findOperation(UMLModel model, String name) {
+        for (UMLClass umlClass : model.getClassList()) {
+            for (UMLOperation operation : umlClass.getOperations()) {
+                if (operation.getName().equals(name)) {
+                    return operation;
+                }
+            }
+        }
+        throw new AssertionError("Operation " + name + " is not in the model");
+    }
+
+    private static List<String> invokedMethodNames(UMLOperation operation) {
+        return operation.getAllOperationInvocations().stream()
+            .map(OperationInvocation::getMethodName)
+            .collect(Collectors.toList());
+    }
+
+    private File findEntry() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            List<Path> entries = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+            assertEquals(1, entries.size());
+            return entries.get(0).toFile();
+        }
+    }
+
+    private static class ForeignObject implements Serializable {
+        private static boolean deserialized;
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            deserialized = true;
+        }
+    }
+}
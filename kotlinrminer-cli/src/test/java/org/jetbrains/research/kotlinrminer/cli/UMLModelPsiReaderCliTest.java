@@ -0,0 +1,89 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import org.jetbrains.research.kotlinrminer.cli.decomposition.OperationInvocation;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLClass;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLFile;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLModel;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
+import org.jetbrains.research.kotlinrminer.cli.util.KotlinEnvironmentPool;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class UMLModelPsiReaderCliTest {
+    private static final String FILE_PATH = "src/main/kotlin/sample/Greeter.kt";
+    private static final String FILE_CONTENT = "package sample\n" +
+        "\n" +
+        "class Greeter(private val name: String) {\n" +
+        "    fun greet(times: Int): String {\n" +
+        "        val builder = StringBuilder()\n" +
+        "        for (i in 0 until times) {\n" +
+        "            builder.append(format(name))\n" +
+        "        }\n" +
+        "        return builder.toString()\n" +
+        "    }\n" +
+        "\n" +
+        "    fun format(text: String) = fun(prefix: String) = prefix + text\n" +
+        "\n" +
+        "    fun empty() {\n" +
+        "    }\n" +
+        "}\n" +
+        "\n" +
+        "fun greetAll(names: List<String>) = names.map { Greeter(it).greet(1) }\n";
+
+    @Test
+    public void buildsLazyBodiesUnderNewLease() throws IOException {
+        UMLModelPsiReaderCli eagerReader = new UMLModelPsiReaderCli(Collections.emptySet());
+        eagerReader.parseFiles(Collections.singletonMap(FILE_PATH, FILE_CONTENT));
+        List<UMLOperation> eagerOperations = operations(eagerReader.getUmlModel());
+
+        KotlinEnvironmentPool pool = new KotlinEnvironmentPool(1);
+        try {
+            UMLModelPsiReaderCli lazyReader = new UMLModelPsiReaderCli(Collections.emptySet(), pool);
+            lazyReader.setLazyBodies(true);
+            lazyReader.parseFiles(Collections.singletonMap(FILE_PATH, FILE_CONTENT));
+            List<UMLOperation> lazyOperations = operations(lazyReader.getUmlModel());
+
+            assertEquals(eagerOperations, lazyOperations);
+            // The environment that parsed the file is leased to another user while the bodies are built
+            try (KotlinEnvironmentPool.Lease ignored = pool.acquire(Collections.emptySet())) {
+                for (int i = 0; i < eagerOperations.size(); i++) {
+                    UMLOperation eagerOperation = eagerOperations.get(i);
+                    UMLOperation lazyOperation = lazyOperations.get(i);
+                    assertEquals(eagerOperation.hasEmptyBody(), lazyOperation.hasEmptyBody());
+                    assertEquals(eagerOperation.statementCount(), lazyOperation.statementCount());
+                    assertEquals(eagerOperation.getBody().getCompositeStatement().getLocationInfo(),
+                        lazyOperation.getBody().getCompositeStatement().getLocationInfo());
+                    assertEquals(invokedMethodNames(eagerOperation), invokedMethodNames(lazyOperation));
+                }
+            }
+            assertFalse(invokedMethodNames(lazyOperations.get(0)).isEmpty());
+        } finally {
+            pool.dispose();
+        }
+    }
+
+    private static List<UMLOperation> operations(UMLModel model) {
+        List<UMLOperation> operations = new ArrayList<>();
+        for (UMLClass umlClass : model.getClassList()) {
+            operations.addAll(umlClass.getOperations());
+        }
+        for (UMLFile umlFile : model.getFileList()) {
+            operations.addAll(umlFile.getOperations());
+        }
+        return operations;
+    }
+
+    private static List<String> invokedMethodNames(UMLOperation operation) {
+        return operation.getAllOperationInvocations().stream()
+            .map(OperationInvocation::getMethodName)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,74 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KotlinTokenUtilTest {
+
+    @Test
+    public void lineBreakReplacedWithSpaceIsChange() {
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "fun f(): Int {\n    val a = 1\n    return a\n}\n",
+            "fun f(): Int {\n    val a = 1 return a\n}\n"));
+        // "return" followed by a line break returns Unit and leaves the next line unreachable
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "fun f() {\n    return\n    g()\n}\n",
+            "fun f() {\n    return g()\n}\n"));
+    }
+
+    @Test
+    public void spacesAroundOperatorAreChange() {
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting("val c = a+b\n", "val c = a + b\n"));
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting("val c = a-b\n", "val c = a -b\n"));
+    }
+
+    @Test
+    public void changeInStringTemplateIsChange() {
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "val s = \"Hello, $name\"\n", "val s = \"Hello,  $name\"\n"));
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "val s = \"Hello, $name\"\n", "val s = \"Hello, ${name}!\"\n"));
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "val s = \"${a+b}\"\n", "val s = \"${a + b}\"\n"));
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "val s = \"a // b\"\n", "val s = \"a\"\n"));
+    }
+
+    @Test
+    public void changeInRawStringIsChange() {
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "val s = \"\"\"\n    first\n    second\n\"\"\"\n",
+            "val s = \"\"\"\n    first\n  second\n\"\"\"\n"));
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "val s = \"\"\"first second\"\"\"\n",
+            "val s = \"\"\"first\nsecond\"\"\"\n"));
+        assertFalse(KotlinTokenUtil.differOnlyInFormatting(
+            "val s = \"\"\"/* not a comment */ $name\"\"\"\n",
+            "val s = \"\"\" $name\"\"\"\n"));
+    }
+
+    @Test
+    public void changeInCommentsOnlyIsFormatting() {
+        assertTrue(KotlinTokenUtil.differOnlyInFormatting(
+            "class A {\n    fun f() = 1\n}\n",
+            "/**\n * Class A.\n */\nclass A {\n    // one\n    fun f() = /* inline */ 1\n}\n"));
+        assertTrue(KotlinTokenUtil.differOnlyInFormatting(
+            "/** Old documentation. */\nfun f() = 1\n",
+            "/**\n * New documentation,\n * on two lines.\n */\nfun f() = 1\n"));
+        assertTrue(KotlinTokenUtil.differOnlyInFormatting(
+            "fun f() {\n    g() // old\n}\n",
+            "fun f() {\n    g() // new\n}\n"));
+    }
+
+    @Test
+    public void changeInIndentationOnlyIsFormatting() {
+        assertTrue(KotlinTokenUtil.differOnlyInFormatting(
+            "fun f() {\n    g(1, 2)\n}\n",
+            "fun f() {\n\n        g(1,  2)\n\n}\n"));
+        assertTrue(KotlinTokenUtil.differOnlyInFormatting(
+            "fun f() {\n    g()\n}",
+            "\n\nfun f() {\n  g()\n}\n\n"));
+    }
+}
@@ -0,0 +1,84 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.jetbrains.research.kotlinrminer.cli.UMLModelPsiReaderCli;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.AbstractCall;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.OperationBody;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.UMLOperationBodyMapper;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLClass;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLModel;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
+import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ModelSerializationTest {
+    private static final String FILE_PATH = "src/main/kotlin/sample/Greeter.kt";
+    private static final String FILE_CONTENT = "package sample\n" +
+        "\n" +
+        "class Greeter(private val name: String) {\n" +
+        "    fun greet(times: Int): String {\n" +
+        "        val builder = StringBuilder()\n" +
+        "        for (i in 0 until times) {\n" +
+        "            builder.append(name)\n" +
+        "        }\n" +
+        "        return builder.toString()\n" +
+        "    }\n" +
+        "}\n";
+
+    @Test
+    public void findsParserClasses() {
+        List<Class<?>> parserClasses = ModelSerialization.getParserClasses();
+        assertTrue(parserClasses.contains(UMLModelPsiReaderCli.class));
+        assertTrue(parserClasses.contains(UMLOperation.class));
+        assertTrue(parserClasses.contains(OperationBody.class));
+        assertTrue(parserClasses.contains(AbstractCall.StatementCoverageType.class));
+        assertTrue(parserClasses.contains(LineIndex.class));
+        assertTrue(parserClasses.contains(CodeElementType.class));
+        assertFalse(parserClasses.contains(UMLModel.class));
+        assertFalse(parserClasses.contains(UMLOperationBodyMapper.class));
+    }
+
+    @Test
+    public void readsWrittenModel() throws Exception {
+        List<UMLClass> classes = parse();
+        byte[] bytes = write(classes, true);
+        try (ObjectInputStream in = ModelSerialization.newInputStream(new ByteArrayInputStream(bytes))) {
+            assertEquals(classes, in.readObject());
+        }
+    }
+
+    @Test
+    public void writesFewerBytesThanJavaSerialization() throws Exception {
+        List<UMLClass> classes = parse();
+        byte[] compactBytes = write(classes, true);
+        byte[] javaBytes = write(classes, false);
+        assertTrue(compactBytes.length < javaBytes.length, compactBytes.length + " / " + javaBytes.length);
+    }
+
+    private static List<UMLClass> parse() throws IOException {
+        UMLModelPsiReaderCli reader = new UMLModelPsiReaderCli(Collections.emptySet());
+        reader.parseFiles(Collections.singletonMap(FILE_PATH, FILE_CONTENT));
+        return new ArrayList<>(reader.getUmlModel().getClassList());
+    }
+
+    private static byte[] write(Object object, boolean compact) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects =
+                 compact ? ModelSerialization.newOutputStream(bytes) : new ObjectOutputStream(bytes)) {
+            objects.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,193 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.jetbrains.research.kotlinrminer.cli.UMLModelPsiReaderCli;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.StatementObject;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLFile;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the results of the regular expression based implementation that the scanning one replaced.
+ */
+public class ReplacementUtilTest {
+
+    @Test
+    public void countsEmptyAndAbsentSubstrings() {
+        assertEquals(0, ReplacementUtil.countInstances("", "a"));
+        assertEquals(0, ReplacementUtil.countInstances("foo(x)", "y"));
+        assertEquals(0, ReplacementUtil.countInstances("", ""));
+        assertEquals(2, ReplacementUtil.countInstances("a;b;", ""));
+        assertFalse(ReplacementUtil.contains("", "a"));
+        assertFalse(ReplacementUtil.contains("foo(x)", "y"));
+        assertFalse(ReplacementUtil.contains("", ""));
+        assertTrue(ReplacementUtil.contains("a;b;", ""));
+    }
+
+    @Test
+    public void countsOverlappingAndAdjacentOccurrences() {
+        assertEquals(1, ReplacementUtil.countInstances("a,a,a,", "a,a"));
+        assertEquals(2, ReplacementUtil.countInstances("x;x;", "x"));
+        assertEquals(2, ReplacementUtil.countInstances("xx;x;", "x"));
+        assertEquals(2, ReplacementUtil.countInstances("f(x)(x)", "x"));
+        // Only the occurrences followed by the first special character found are counted
+        assertEquals(1, ReplacementUtil.countInstances("x;x,", "x"));
+    }
+
+    @Test
+    public void countsOccurrencesAtStringStartAndEnd() {
+        assertEquals(1, ReplacementUtil.countInstances("x+y", "x"));
+        assertEquals(0, ReplacementUtil.countInstances("x+y", "y"));
+        assertTrue(ReplacementUtil.contains("x+y", "x"));
+        assertFalse(ReplacementUtil.contains("x+y", "y"));
+    }
+
+    @Test
+    public void countsOccurrencesRegardlessOfIdentifierBoundaries() {
+        assertEquals(1, ReplacementUtil.countInstances("ax=1", "x"));
+        assertTrue(ReplacementUtil.contains("ax=1", "x"));
+        assertEquals(1, ReplacementUtil.countInstances("\"x,\" + x", "x"));
+    }
+
+    @Test
+    public void replacesSubstring() {
+        assertEquals("y", ReplacementUtil.performReplacement("x", "x", "y"));
+        assertEquals("x", ReplacementUtil.performReplacement("x", "", "y"));
+        assertEquals("a", ReplacementUtil.performReplacement("a", "b", "c"));
+        assertEquals("ac+b", ReplacementUtil.performReplacement("a+b", "", "c"));
+        assertEquals("y+1", ReplacementUtil.performReplacement("x+1", "x", "y"));
+        // Without a following special character, the occurrences preceded by one are replaced
+        assertEquals("1+y", ReplacementUtil.performReplacement("1+x", "x", "y"));
+        assertEquals("return y", ReplacementUtil.performReplacement("return x", "x", "y"));
+        assertEquals("xx", ReplacementUtil.performReplacement("xx", "x", "y"));
+        assertEquals("ay=y;", ReplacementUtil.performReplacement("ax=x;", "x", "y"));
+        assertEquals("f(y, y)", ReplacementUtil.performReplacement("f(x, x)", "x", "y"));
+        assertEquals("z.y(z)", ReplacementUtil.performReplacement("x.y(x)", "x", "z"));
+        assertEquals("\"y;\" + x", ReplacementUtil.performReplacement("\"x;\" + x", "x", "y"));
+    }
+
+    @Test
+    public void replacesArgument() {
+        assertEquals("x", ReplacementUtil.performArgumentReplacement("x", "x", "y"));
+        assertEquals("x", ReplacementUtil.performArgumentReplacement("x", "", "y"));
+        assertEquals("ac+b", ReplacementUtil.performArgumentReplacement("a+b", "", "c"));
+        assertEquals("y+1", ReplacementUtil.performArgumentReplacement("x+1", "x", "y"));
+        assertEquals("1+x", ReplacementUtil.performArgumentReplacement("1+x", "x", "y"));
+        assertEquals("return x", ReplacementUtil.performArgumentReplacement("return x", "x", "y"));
+        assertEquals("ay=y;", ReplacementUtil.performArgumentReplacement("ax=x;", "x", "y"));
+        assertEquals("f(y, y)", ReplacementUtil.performArgumentReplacement("f(x, x)", "x", "y"));
+        assertEquals("\"y;\" + x", ReplacementUtil.performArgumentReplacement("\"x;\" + x", "x", "y"));
+    }
+
+    @Test
+    public void replacesSubstringWithCompatibleNeighbours() {
+        assertEquals("f(x, b)", ReplacementUtil.performReplacement("f(a, b)", "f(x, b)", "a", "x"));
+        assertEquals("f(a,x)", ReplacementUtil.performReplacement("f(a,a)", "f(x)", "a", "x"));
+        assertEquals("x;", ReplacementUtil.performReplacement("a;", "x;", "a", "x"));
+        assertEquals(" x;", ReplacementUtil.performReplacement(" a;", "x;", "a", "x"));
+        assertEquals("(x;", ReplacementUtil.performReplacement("(a;", ",x;", "a", "x"));
+        assertEquals("(a;", ReplacementUtil.performReplacement("(a;", "+x;", "a", "x"));
+        assertEquals("x+x;", ReplacementUtil.performReplacement("a+a;", "x+x;", "a", "x"));
+        assertEquals("aa;", ReplacementUtil.performReplacement("aa;", "xx;", "a", "x"));
+        assertEquals("x.b", ReplacementUtil.performReplacement("a.b", "x.b", "a", "x"));
+        assertEquals("s = \"x;\" + x;",
+            ReplacementUtil.performReplacement("s = \"a;\" + a;", "s = \"x;\" + x;", "a", "x"));
+        assertEquals("f(a)", ReplacementUtil.performReplacement("f(a)", "f(x)", "", "x"));
+    }
+
+    @Test
+    public void replacesSubstringAtStringEnd() {
+        assertEquals("a", ReplacementUtil.performReplacement("a", "x", "a", "x"));
+        assertEquals("return x", ReplacementUtil.performReplacement("return a", "return x", "a", "x"));
+        assertEquals("g(x)", ReplacementUtil.performReplacement("g(a)", "g(x,1)", "a", "x"));
+        assertEquals("a -> b\nc;", ReplacementUtil.performReplacement("a -> b\nc;", "x;", "a", "x"));
+    }
+
+    @Test
+    public void comparesCharactersAroundCommonSubstring() {
+        assertTrue(ReplacementUtil.sameCharsBeforeAfter("a+b", "a+c", "a"));
+        assertFalse(ReplacementUtil.sameCharsBeforeAfter("(a)", "a;", "a"));
+        assertTrue(ReplacementUtil.sameCharsBeforeAfter("xax", "xax", "x"));
+        assertFalse(ReplacementUtil.sameCharsBeforeAfter("aaa", "aa", "aa"));
+        assertTrue(ReplacementUtil.sameCharsBeforeAfter("a", "b", "c"));
+        assertTrue(ReplacementUtil.sameCharsBeforeAfter("f(a)", "g(a)", "a"));
+        assertTrue(ReplacementUtil.sameCharsBeforeAfter("a,a", "a,b", "a"));
+        assertTrue(ReplacementUtil.sameCharsBeforeAfter("ab", "ab", ""));
+        assertFalse(ReplacementUtil.sameCharsBeforeAfter("ab", "abc", ""));
+        assertTrue(ReplacementUtil.sameCharsBeforeAfter("", "", ""));
+    }
+
+    @Test
+    public void keepsReservedTokens() {
+        assertEquals("(, []);", ReplacementUtil.keepReservedTokens("f(a, b[0]);"));
+        assertEquals(" =  +  -  >  < .", ReplacementUtil.keepReservedTokens("x = y + z - 1 > 0 < 2.0"));
+        assertEquals("", ReplacementUtil.keepReservedTokens("abc"));
+        assertEquals("", ReplacementUtil.keepReservedTokens(""));
+    }
+
+    @Test
+    public void replacesParametersWithArguments() throws IOException {
+        String[][] cases = {
+            {"x.foo()", "x", "y", "y.foo()"},
+            {"return x", "x", "y", "return y"},
+            {"return ret", "ret", "z", "return z"},
+            {"xx = x", "x", "y", "yx = y"},
+            {"x=x", "x", "y", "y=y"},
+            {"f(x,x)", "x", "y", "f(y,y)"},
+            {"f(x)", "x", "x", "f(x)"},
+            {"println(\"the x\" + x)", "x", "y", "println(\"the x\" + y)"},
+            {"s = \"a\" + x + \"b\"", "x", "y", "s = \"a\" + y + \"b\""},
+            {"s = \"x\"", "x", "y", "s = \"x\""},
+            {"g(x + \"x\")", "x", "y", "g(y + \"x\")"},
+            {"g(\"a\" + \"x\")", "x", "y", "g(\"a\" + \"x\")"}
+        };
+        List<String> statements = new ArrayList<>();
+        for (String[] replacement : cases) {
+            statements.add(replacement[0]);
+        }
+        List<StatementObject> fragments = parseStatements(statements);
+        for (int i = 0; i < cases.length; i++) {
+            StatementObject fragment = fragments.get(i);
+            assertEquals(cases[i][0], fragment.getString());
+            assertEquals(cases[i][3],
+                fragment.replaceParametersWithArguments(Collections.singletonMap(cases[i][1], cases[i][2])),
+                cases[i][0]);
+        }
+
+        Map<String, String> parameterToArgumentMap = new LinkedHashMap<>();
+        parameterToArgumentMap.put("a", "b");
+        parameterToArgumentMap.put("b", "c");
+        StatementObject fragment = parseStatements(Collections.singletonList("f(a, b)")).get(0);
+        assertEquals("f(c, c)", fragment.replaceParametersWithArguments(parameterToArgumentMap));
+    }
+
+    /**
+     * @return The fragments of the statements, each of them parsed as the body of a separate function.
+     */
+    private static List<StatementObject> parseStatements(List<String> statements) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < statements.size(); i++) {
+            content.append("fun f").append(i).append("() {\n    ").append(statements.get(i)).append("\n}\n");
+        }
+        UMLModelPsiReaderCli reader = new UMLModelPsiReaderCli(Collections.emptySet());
+        reader.parseFiles(Collections.singletonMap("Statements.kt", content.toString()));
+        List<StatementObject> fragments = new ArrayList<>();
+        for (UMLFile umlFile : reader.getUmlModel().getFileList()) {
+            for (UMLOperation operation : umlFile.getOperations()) {
+                fragments.add(operation.getBody().getCompositeStatement().getLeaves().get(0));
+            }
+        }
+        assertEquals(statements.size(), fragments.size());
+        return fragments;
+    }
+}
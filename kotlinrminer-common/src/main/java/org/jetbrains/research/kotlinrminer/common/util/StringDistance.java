@@ -1,14 +1,216 @@
 package org.jetbrains.research.kotlinrminer.common.util;
 
-import org.apache.commons.text.similarity.LevenshteinDistance;
-
+/**
+ * Computes the Levenshtein distance between strings without allocating memory on each call.
+ * The common prefix and suffix of the strings are skipped. If the shorter of the remaining parts is up to 64
+ * ASCII characters long, the distance is computed with the bit-parallel algorithm of Myers in linear time.
+ * Otherwise, the dynamic programming matrix is computed row by row, limited to a band around the diagonal
+ * when a threshold is given.
+ */
 public class StringDistance {
+    private static final int ALPHABET_SIZE = 128;
+    private static final int MAX_BIT_PARALLEL_LENGTH = Long.SIZE;
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
 
+    /**
+     * @return The distance between the strings, or -1 if it is greater than the threshold.
+     */
     public static int editDistance(String a, String b, int threshold) {
-        return new LevenshteinDistance(threshold).apply(a, b);
+        if (threshold < 0) {
+            return -1;
+        }
+        if (Math.abs(a.length() - b.length()) > threshold) {
+            return -1;
+        }
+        int distance = distance(a, b, threshold);
+        return distance <= threshold ? distance : -1;
     }
 
     public static int editDistance(String a, String b) {
-        return new LevenshteinDistance().apply(a, b);
+        return distance(a, b, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return The distance between the strings if it does not exceed the threshold, or any greater value otherwise.
+     */
+    private static int distance(String a, String b, int threshold) {
+        String shorter = a.length() <= b.length() ? a : b;
+        String longer = shorter == a ? b : a;
+        int start = 0;
+        int shorterEnd = shorter.length();
+        int longerEnd = longer.length();
+        while (start < shorterEnd && shorter.charAt(start) == longer.charAt(start)) {
+            start++;
+        }
+        while (shorterEnd > start && shorter.charAt(shorterEnd - 1) == longer.charAt(longerEnd - 1)) {
+            shorterEnd--;
+            longerEnd--;
+        }
+        int shorterLength = shorterEnd - start;
+        int longerLength = longerEnd - start;
+        if (shorterLength == 0) {
+            return longerLength;
+        }
+        Workspace workspace = WORKSPACE.get();
+        if (shorterLength <= MAX_BIT_PARALLEL_LENGTH && isAscii(shorter, start, shorterEnd)) {
+            return bitParallelDistance(workspace, shorter, longer, start, shorterEnd, longerEnd);
+        }
+        if (threshold < longerLength) {
+            return bandedDistance(workspace, shorter, longer, start, shorterEnd, longerEnd, threshold);
+        }
+        return fullDistance(workspace, shorter, longer, start, shorterEnd, longerEnd);
+    }
+
+    private static boolean isAscii(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) >= ALPHABET_SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Myers' algorithm, with the pattern of up to 64 characters kept in the bits of a single word.
+     */
+    private static int bitParallelDistance(Workspace workspace,
+                                           String pattern,
+                                           String text,
+                                           int start,
+                                           int patternEnd,
+                                           int textEnd) {
+        long[] peq = workspace.peq;
+        for (int i = start; i < patternEnd; i++) {
+            peq[pattern.charAt(i)] |= 1L << (i - start);
+        }
+        long positiveVertical = -1L;
+        long negativeVertical = 0L;
+        long lastBit = 1L << (patternEnd - start - 1);
+        int distance = patternEnd - start;
+        for (int j = start; j < textEnd; j++) {
+            char c = text.charAt(j);
+            long equal = c < ALPHABET_SIZE ? peq[c] : 0L;
+            long xv = equal | negativeVertical;
+            long xh = (((equal & positiveVertical) + positiveVertical) ^ positiveVertical) | equal;
+            long positiveHorizontal = negativeVertical | ~(xh | positiveVertical);
+            long negativeHorizontal = positiveVertical & xh;
+            if ((positiveHorizontal & lastBit) != 0) {
+                distance++;
+            } else if ((negativeHorizontal & lastBit) != 0) {
+                distance--;
+            }
+            positiveHorizontal = (positiveHorizontal << 1) | 1L;
+            negativeHorizontal = negativeHorizontal << 1;
+            positiveVertical = negativeHorizontal | ~(xv | positiveHorizontal);
+            negativeVertical = positiveHorizontal & xv;
+        }
+        for (int i = start; i < patternEnd; i++) {
+            peq[pattern.charAt(i)] = 0L;
+        }
+        return distance;
+    }
+
+    /**
+     * Computes only the cells that are at most {@code threshold} away from the diagonal, and stops as soon as
+     * every cell of a row exceeds the threshold.
+     */
+    private static int bandedDistance(Workspace workspace,
+                                      String shorter,
+                                      String longer,
+                                      int start,
+                                      int shorterEnd,
+                                      int longerEnd,
+                                      int threshold) {
+        int n = shorterEnd - start;
+        int m = longerEnd - start;
+        int outside = threshold + 1;
+        int[] previous = workspace.previousRow(n + 1);
+        int[] current = workspace.currentRow(n + 1);
+        for (int i = 0; i <= n; i++) {
+            previous[i] = i <= threshold ? i : outside;
+        }
+        for (int j = 1; j <= m; j++) {
+            char c = longer.charAt(start + j - 1);
+            int from = Math.max(1, j - threshold);
+            int to = Math.min(n, j + threshold);
+            current[0] = j <= threshold ? j : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int rowMinimum = current[from - 1];
+            for (int i = from; i <= to; i++) {
+                int value;
+                if (shorter.charAt(start + i - 1) == c) {
+                    value = previous[i - 1];
+                } else {
+                    value = 1 + Math.min(Math.min(current[i - 1], previous[i]), previous[i - 1]);
+                }
+                current[i] = Math.min(value, outside);
+                rowMinimum = Math.min(rowMinimum, current[i]);
+            }
+            if (to < n) {
+                current[to + 1] = outside;
+            }
+            if (rowMinimum > threshold) {
+                return outside;
+            }
+            int[] row = previous;
+            previous = current;
+            current = row;
+        }
+        return previous[n];
+    }
+
+    private static int fullDistance(Workspace workspace,
+                                    String shorter,
+                                    String longer,
+                                    int start,
+                                    int shorterEnd,
+                                    int longerEnd) {
+        int n = shorterEnd - start;
+        int m = longerEnd - start;
+        int[] previous = workspace.previousRow(n + 1);
+        int[] current = workspace.currentRow(n + 1);
+        for (int i = 0; i <= n; i++) {
+            previous[i] = i;
+        }
+        for (int j = 1; j <= m; j++) {
+            char c = longer.charAt(start + j - 1);
+            current[0] = j;
+            for (int i = 1; i <= n; i++) {
+                if (shorter.charAt(start + i - 1) == c) {
+                    current[i] = previous[i - 1];
+                } else {
+                    current[i] = 1 + Math.min(Math.min(current[i - 1], previous[i]), previous[i - 1]);
+                }
+            }
+            int[] row = previous;
+            previous = current;
+            current = row;
+        }
+        return previous[n];
+    }
+
+    /**
+     * The memory reused by the computations of a single thread.
+     */
+    private static class Workspace {
+        private final long[] peq = new long[ALPHABET_SIZE];
+        private int[] previousRow = new int[0];
+        private int[] currentRow = new int[0];
+
+        private int[] previousRow(int length) {
+            if (previousRow.length < length) {
+                previousRow = new int[Math.max(length, 2 * previousRow.length)];
+            }
+            return previousRow;
+        }
+
+        private int[] currentRow(int length) {
+            if (currentRow.length < length) {
+                currentRow = new int[Math.max(length, 2 * currentRow.length)];
+            }
+            return currentRow;
+        }
     }
 }
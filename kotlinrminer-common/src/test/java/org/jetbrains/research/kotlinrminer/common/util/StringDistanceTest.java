@@ -0,0 +1,121 @@
+package org.jetbrains.research.kotlinrminer.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StringDistanceTest {
+    private static final String[] ALPHABETS = {
+        "ab", "abcde", "abcdefghijklmnopqrstuvwxyz(). ", "a\u00e4\u0431\u20ac\ud83d\ude00x"
+    };
+
+    @Test
+    public void negativeThresholdExceedsEveryDistance() {
+        assertEquals(-1, StringDistance.editDistance("", "", -1));
+        assertEquals(-1, StringDistance.editDistance("same", "same", -1));
+        assertEquals(-1, StringDistance.editDistance("a", "b", Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void lengthDifferenceAboveThresholdExceedsThreshold() {
+        assertEquals(-1, StringDistance.editDistance("abc", "abcdef", 2));
+        assertEquals(3, StringDistance.editDistance("abc", "abcdef", 3));
+        assertEquals(-1, StringDistance.editDistance("", "abcd", 3));
+        assertEquals(4, StringDistance.editDistance("", "abcd", 4));
+    }
+
+    @Test
+    public void distanceOfLongStrings() {
+        String a = repeat("abcdefghij", 10);
+        String b = "x" + a.substring(5, 70) + "y" + a.substring(71) + "z";
+        int expected = levenshtein(a, b);
+        assertEquals(expected, StringDistance.editDistance(a, b));
+        assertEquals(expected, StringDistance.editDistance(b, a));
+        assertEquals(expected, StringDistance.editDistance(a, b, expected));
+        assertEquals(-1, StringDistance.editDistance(a, b, expected - 1));
+    }
+
+    @Test
+    public void distanceOfNonAsciiStrings() {
+        assertEquals(1, StringDistance.editDistance("na\u00efve", "naive"));
+        assertEquals(2, StringDistance.editDistance("\ud83d\ude00", "x"));
+        assertEquals(1, StringDistance.editDistance("\u0431\u0430\u0431", "\u0431\u0430\u0431\u0430", 1));
+        String a = repeat("\u00e4b", 40);
+        String b = repeat("ab", 40);
+        assertEquals(40, StringDistance.editDistance(a, b));
+        assertEquals(-1, StringDistance.editDistance(a, b, 39));
+    }
+
+    @Test
+    public void sameDistancesAsDynamicProgramming() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+            String a = randomString(random, random.nextInt(random.nextBoolean() ? 12 : 150), alphabet);
+            String b = random.nextBoolean() ?
+                randomString(random, random.nextInt(150), alphabet) : mutate(random, a, alphabet);
+            int expected = levenshtein(a, b);
+            assertEquals(expected, StringDistance.editDistance(a, b), a + " / " + b);
+            int threshold = random.nextInt(expected + 5) - 2;
+            int expectedWithThreshold = threshold < 0 || expected > threshold ? -1 : expected;
+            assertEquals(expectedWithThreshold, StringDistance.editDistance(a, b, threshold),
+                a + " / " + b + " / " + threshold);
+        }
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] distances = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            distances[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            distances[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                distances[i][j] = Math.min(Math.min(distances[i - 1][j] + 1, distances[i][j - 1] + 1),
+                    distances[i - 1][j - 1] + substitution);
+            }
+        }
+        return distances[a.length()][b.length()];
+    }
+
+    private static String randomString(Random random, int length, String alphabet) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    private static String mutate(Random random, String s, String alphabet) {
+        StringBuilder sb = new StringBuilder(s);
+        int edits = random.nextInt(6);
+        for (int i = 0; i < edits; i++) {
+            int position = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                sb.insert(position, c);
+            } else if (sb.length() > 0) {
+                if (operation == 1) {
+                    sb.deleteCharAt(position);
+                } else {
+                    sb.setCharAt(position, c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
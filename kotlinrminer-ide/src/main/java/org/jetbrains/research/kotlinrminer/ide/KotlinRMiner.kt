@@ -74,11 +74,12 @@ object KotlinRMiner {
         fileContents: MutableMap<String, String>,
         repositoryDirectories: MutableSet<String>
     ) {
+        val filePathSet = filePaths.toHashSet()
         for (change in changes) {
             val revision =
                 (if (type == RevisionType.BEFORE) change.beforeRevision else change.afterRevision) ?: continue
             val pathString = ChangesUtil.getFilePath(change).path
-            if (filePaths.contains(pathString)) {
+            if (filePathSet.contains(pathString)) {
                 fileContents[pathString] = ChangesUtil.loadContentRevision(revision).toString(Charsets.UTF_8)
             }
             if (pathString.endsWith(".kt") && pathString.contains("/")) {
@@ -9,8 +9,9 @@ public class CompositeStatementObjectMapping extends AbstractCodeMapping impleme
     private final double compositeChildMatchingScore;
 
     public CompositeStatementObjectMapping(CompositeStatementObject statement1, CompositeStatementObject statement2,
-                                           UMLOperation operation1, UMLOperation operation2, double score) {
-        super(statement1, statement2, operation1, operation2);
+                                           UMLOperation operation1, UMLOperation operation2, double score,
+                                           ArgumentizedStrings argumentizedStrings) {
+        super(statement1, statement2, operation1, operation2, argumentizedStrings);
         this.compositeChildMatchingScore = score;
     }
 
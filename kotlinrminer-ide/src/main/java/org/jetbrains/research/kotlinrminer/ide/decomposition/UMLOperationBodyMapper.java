@@ -53,6 +53,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
     private UMLFileDiff fileDiff;
     private UMLModelDiff modelDiff;
     private UMLOperation callSiteOperation;
+    private final ArgumentizedStrings argumentizedStrings;
     private final Map<AbstractCodeFragment, UMLOperation> codeFragmentOperationMap1 = new LinkedHashMap<>();
     private final Map<AbstractCodeFragment, UMLOperation> codeFragmentOperationMap2 = new LinkedHashMap<>();
 
@@ -65,6 +66,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         this.operation1 = operation1;
         this.operation2 = operation2;
         this.mappings = new LinkedHashSet<>();
+        this.argumentizedStrings = new ArgumentizedStrings();
         this.nonMappedLeavesT1 = new ArrayList<>();
         this.nonMappedLeavesT2 = new ArrayList<>();
         this.nonMappedInnerNodesT1 = new ArrayList<>();
@@ -80,59 +82,31 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
             UMLOperationDiff operationDiff = new UMLOperationDiff(operation1, operation2);
             Map<String, String> parameterToArgumentMap1 = new LinkedHashMap<>();
             Map<String, String> parameterToArgumentMap2 = new LinkedHashMap<>();
-            List<UMLParameter> addedParameters = operationDiff.getAddedParameters();
-            if (addedParameters.size() == 1) {
-                UMLParameter addedParameter = addedParameters.get(0);
-                if (UMLModelDiff.looksLikeSameType(addedParameter.getType().getClassType(),
-                    operation1.getClassName())) {
-                    parameterToArgumentMap1.put("this.", "");
-                    //replace "parameterName." with ""
-                    parameterToArgumentMap2.put(addedParameter.getName() + ".", "");
-                }
-            }
-            List<UMLParameter> removedParameters = operationDiff.getRemovedParameters();
-            if (removedParameters.size() == 1) {
-                UMLParameter removedParameter = removedParameters.get(0);
-                if (UMLModelDiff.looksLikeSameType(removedParameter.getType().getClassType(),
-                    operation2.getClassName())) {
-                    parameterToArgumentMap1.put(removedParameter.getName() + ".", "");
-                    parameterToArgumentMap2.put("this.", "");
-                }
-            }
-            resetNodes(leaves1);
-            //replace parameters with arguments in leaves1
-            if (!parameterToArgumentMap1.isEmpty()) {
-                for (StatementObject leave1 : leaves1) {
-                    leave1.replaceParametersWithArguments(parameterToArgumentMap1);
-                }
+            UMLParameter addedParameter = parameterOfClass(operationDiff.getAddedParameters(), operation1);
+            if (addedParameter != null) {
+                parameterToArgumentMap1.put("this.", "");
+                //replace "parameterName." with ""
+                parameterToArgumentMap2.put(addedParameter.getName() + ".", "");
             }
-            resetNodes(leaves2);
-            //replace parameters with arguments in leaves2
-            if (!parameterToArgumentMap2.isEmpty()) {
-                for (StatementObject leave2 : leaves2) {
-                    leave2.replaceParametersWithArguments(parameterToArgumentMap2);
-                }
+            UMLParameter removedParameter = parameterOfClass(operationDiff.getRemovedParameters(), operation2);
+            if (removedParameter != null) {
+                parameterToArgumentMap1.put(removedParameter.getName() + ".", "");
+                parameterToArgumentMap2.put("this.", "");
             }
+            //replace parameters with arguments in leaves1
+            argumentizedStrings.argumentize(leaves1, parameterToArgumentMap1);
+            //replace parameters with arguments in leaves2
+            argumentizedStrings.argumentize(leaves2, parameterToArgumentMap2);
             processLeaves(leaves1, leaves2, new LinkedHashMap<>());
 
             List<CompositeStatementObject> innerNodes1 = composite1.getInnerNodes();
             innerNodes1.remove(composite1);
             List<CompositeStatementObject> innerNodes2 = composite2.getInnerNodes();
             innerNodes2.remove(composite2);
-            resetNodes(innerNodes1);
             //replace parameters with arguments in innerNodes1
-            if (!parameterToArgumentMap1.isEmpty()) {
-                for (CompositeStatementObject innerNode1 : innerNodes1) {
-                    innerNode1.replaceParametersWithArguments(parameterToArgumentMap1);
-                }
-            }
-            resetNodes(innerNodes2);
+            argumentizedStrings.argumentize(innerNodes1, parameterToArgumentMap1);
             //replace parameters with arguments in innerNodes2
-            if (!parameterToArgumentMap2.isEmpty()) {
-                for (CompositeStatementObject innerNode2 : innerNodes2) {
-                    innerNode2.replaceParametersWithArguments(parameterToArgumentMap2);
-                }
-            }
+            argumentizedStrings.argumentize(innerNodes2, parameterToArgumentMap2);
             processInnerNodes(innerNodes1, innerNodes2, new LinkedHashMap<>());
 
             nonMappedLeavesT1.addAll(leaves1);
@@ -159,6 +133,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         this.operation1 = parentMapper.operation1;
         this.operation2 = parentMapper.operation2;
         this.mappings = new LinkedHashSet<>();
+        this.argumentizedStrings = parentMapper.argumentizedStrings;
         this.nonMappedLeavesT1 = new ArrayList<>();
         this.nonMappedLeavesT2 = new ArrayList<>();
         this.nonMappedInnerNodesT1 = new ArrayList<>();
@@ -204,6 +179,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         this.operation1 = operation1;
         this.operation2 = operation2;
         this.mappings = new LinkedHashSet<>();
+        this.argumentizedStrings = new ArgumentizedStrings();
         this.nonMappedLeavesT1 = new ArrayList<>();
         this.nonMappedLeavesT2 = new ArrayList<>();
         this.nonMappedInnerNodesT1 = new ArrayList<>();
@@ -219,59 +195,31 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
             UMLOperationDiff operationDiff = new UMLOperationDiff(operation1, operation2);
             Map<String, String> parameterToArgumentMap1 = new LinkedHashMap<>();
             Map<String, String> parameterToArgumentMap2 = new LinkedHashMap<>();
-            List<UMLParameter> addedParameters = operationDiff.getAddedParameters();
-            if (addedParameters.size() == 1) {
-                UMLParameter addedParameter = addedParameters.get(0);
-                if (UMLModelDiff.looksLikeSameType(addedParameter.getType().getClassType(),
-                    operation1.getClassName())) {
-                    parameterToArgumentMap1.put("this.", "");
-                    //replace "parameterName." with ""
-                    parameterToArgumentMap2.put(addedParameter.getName() + ".", "");
-                }
-            }
-            List<UMLParameter> removedParameters = operationDiff.getRemovedParameters();
-            if (removedParameters.size() == 1) {
-                UMLParameter removedParameter = removedParameters.get(0);
-                if (UMLModelDiff.looksLikeSameType(removedParameter.getType().getClassType(),
-                    operation2.getClassName())) {
-                    parameterToArgumentMap1.put(removedParameter.getName() + ".", "");
-                    parameterToArgumentMap2.put("this.", "");
-                }
-            }
-            resetNodes(leaves1);
-            //replace parameters with arguments in leaves1
-            if (!parameterToArgumentMap1.isEmpty()) {
-                for (StatementObject leave1 : leaves1) {
-                    leave1.replaceParametersWithArguments(parameterToArgumentMap1);
-                }
+            UMLParameter addedParameter = parameterOfClass(operationDiff.getAddedParameters(), operation1);
+            if (addedParameter != null) {
+                parameterToArgumentMap1.put("this.", "");
+                //replace "parameterName." with ""
+                parameterToArgumentMap2.put(addedParameter.getName() + ".", "");
             }
-            resetNodes(leaves2);
-            //replace parameters with arguments in leaves2
-            if (!parameterToArgumentMap2.isEmpty()) {
-                for (StatementObject leave2 : leaves2) {
-                    leave2.replaceParametersWithArguments(parameterToArgumentMap2);
-                }
+            UMLParameter removedParameter = parameterOfClass(operationDiff.getRemovedParameters(), operation2);
+            if (removedParameter != null) {
+                parameterToArgumentMap1.put(removedParameter.getName() + ".", "");
+                parameterToArgumentMap2.put("this.", "");
             }
+            //replace parameters with arguments in leaves1
+            argumentizedStrings.argumentize(leaves1, parameterToArgumentMap1);
+            //replace parameters with arguments in leaves2
+            argumentizedStrings.argumentize(leaves2, parameterToArgumentMap2);
             processLeaves(leaves1, leaves2, new LinkedHashMap<>());
 
             List<CompositeStatementObject> innerNodes1 = composite1.getInnerNodes();
             innerNodes1.remove(composite1);
             List<CompositeStatementObject> innerNodes2 = composite2.getInnerNodes();
             innerNodes2.remove(composite2);
-            resetNodes(innerNodes1);
             //replace parameters with arguments in innerNodes1
-            if (!parameterToArgumentMap1.isEmpty()) {
-                for (CompositeStatementObject innerNode1 : innerNodes1) {
-                    innerNode1.replaceParametersWithArguments(parameterToArgumentMap1);
-                }
-            }
-            resetNodes(innerNodes2);
+            argumentizedStrings.argumentize(innerNodes1, parameterToArgumentMap1);
             //replace parameters with arguments in innerNodes2
-            if (!parameterToArgumentMap2.isEmpty()) {
-                for (CompositeStatementObject innerNode2 : innerNodes2) {
-                    innerNode2.replaceParametersWithArguments(parameterToArgumentMap2);
-                }
-            }
+            argumentizedStrings.argumentize(innerNodes2, parameterToArgumentMap2);
             processInnerNodes(innerNodes1, innerNodes2, new LinkedHashMap<>());
 
             nonMappedLeavesT1.addAll(leaves1);
@@ -299,6 +247,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         this.operation2 = addedOperation;
         this.classDiff = classDiff;
         this.mappings = new LinkedHashSet<>();
+        this.argumentizedStrings = new ArgumentizedStrings(operationBodyMapper.argumentizedStrings);
         this.nonMappedLeavesT1 = new ArrayList<>();
         this.nonMappedLeavesT2 = new ArrayList<>();
         this.nonMappedInnerNodesT1 = new ArrayList<>();
@@ -317,8 +266,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
             }
             for (AbstractCodeMapping mapping : operationBodyMapper.getMappings()) {
                 if (!returnWithVariableReplacement(mapping) && !nullLiteralReplacements(
-                    mapping) && (!mapping.getReplacements().isEmpty() || !mapping.getFragment1().equalFragment(
-                    mapping.getFragment2()))) {
+                    mapping) && (!mapping.getReplacements().isEmpty() || !mapping.equalFragments())) {
                     AbstractCodeFragment fragment = mapping.getFragment1();
                     // expandAnonymousAndLambdas(fragment, leaves1, innerNodes1, addedLeaves1, addedInnerNodes1,operationBodyMapper);
                 }
@@ -374,27 +322,16 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                 }
             }
             leaves2.addAll(addedLeaves2);
-            resetNodes(leaves1);
             //replace parameters with arguments in leaves1
-            if (!parameterToArgumentMap1.isEmpty()) {
-                for (StatementObject leave1 : leaves1) {
-                    leave1.replaceParametersWithArguments(parameterToArgumentMap1);
-                }
-            }
-            resetNodes(leaves2);
+            argumentizedStrings.argumentize(leaves1, parameterToArgumentMap1);
             //replace parameters with arguments in leaves2
-            if (!parameterToArgumentMap2.isEmpty()) {
-                for (StatementObject leave2 : leaves2) {
-                    leave2.replaceParametersWithArguments(parameterToArgumentMap2);
-                }
-            }
+            argumentizedStrings.argumentize(leaves2, parameterToArgumentMap2);
             //compare leaves from T1 with leaves from T2
             processLeaves(leaves1, leaves2, parameterToArgumentMap2);
 
             //adding innerNodes that were mapped with replacements
             for (AbstractCodeMapping mapping : operationBodyMapper.getMappings()) {
-                if (!mapping.getReplacements().isEmpty() || !mapping.getFragment1().equalFragment(
-                    mapping.getFragment2())) {
+                if (!mapping.getReplacements().isEmpty() || !mapping.equalFragments()) {
                     AbstractCodeFragment fragment = mapping.getFragment1();
                     if (fragment instanceof CompositeStatementObject) {
                         CompositeStatementObject statement = (CompositeStatementObject) fragment;
@@ -407,20 +344,10 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
             }
             innerNodes2.remove(composite2);
             innerNodes2.addAll(addedInnerNodes2);
-            resetNodes(innerNodes1);
             //replace parameters with arguments in innerNodes1
-            if (!parameterToArgumentMap1.isEmpty()) {
-                for (CompositeStatementObject innerNode1 : innerNodes1) {
-                    innerNode1.replaceParametersWithArguments(parameterToArgumentMap1);
-                }
-            }
-            resetNodes(innerNodes2);
+            argumentizedStrings.argumentize(innerNodes1, parameterToArgumentMap1);
             //replace parameters with arguments in innerNode2
-            if (!parameterToArgumentMap2.isEmpty()) {
-                for (CompositeStatementObject innerNode2 : innerNodes2) {
-                    innerNode2.replaceParametersWithArguments(parameterToArgumentMap2);
-                }
-            }
+            argumentizedStrings.argumentize(innerNodes2, parameterToArgumentMap2);
             //compare inner nodes from T1 with inner nodes from T2
             processInnerNodes(innerNodes1, innerNodes2, parameterToArgumentMap2);
 
@@ -428,7 +355,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
             List<AbstractExpression> expressionsT1 = new ArrayList<>();
             for (CompositeStatementObject composite : operationBodyMapper.getNonMappedInnerNodesT1()) {
                 for (AbstractExpression expression : composite.getExpressions()) {
-                    expression.replaceParametersWithArguments(parameterToArgumentMap1);
+                    argumentizedStrings.argumentize(expression, parameterToArgumentMap1);
                     expressionsT1.add(expression);
                 }
             }
@@ -470,6 +397,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         this.classDiff = classDiff;
         this.fileDiff = null;
         this.mappings = new LinkedHashSet<>();
+        this.argumentizedStrings = new ArgumentizedStrings(operationBodyMapper.argumentizedStrings);
         this.nonMappedLeavesT1 = new ArrayList<>();
         this.nonMappedLeavesT2 = new ArrayList<>();
         this.nonMappedInnerNodesT1 = new ArrayList<>();
@@ -484,8 +412,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
             Set<StatementObject> addedLeaves2 = new LinkedHashSet<>();
             for (AbstractCodeMapping mapping : operationBodyMapper.getMappings()) {
                 if (!returnWithVariableReplacement(mapping) && !nullLiteralReplacements(
-                    mapping) && (!mapping.getReplacements().isEmpty() || !mapping.getFragment1().equalFragment(
-                    mapping.getFragment2()))) {
+                    mapping) && (!mapping.getReplacements().isEmpty() || !mapping.equalFragments())) {
                     AbstractCodeFragment fragment = mapping.getFragment2();
                     if (fragment instanceof StatementObject) {
                         StatementObject statement = (StatementObject) fragment;
@@ -496,7 +423,6 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     }
                 }
             }
-            resetNodes(leaves1);
             //replace parameters with arguments in leaves1
             if (!parameterToArgumentMap.isEmpty()) {
                 //check for temporary variables that the argument might be assigned to
@@ -512,10 +438,8 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                         }
                     }
                 }
-                for (StatementObject leave1 : leaves1) {
-                    leave1.replaceParametersWithArguments(parameterToArgumentMap);
-                }
             }
+            argumentizedStrings.argumentize(leaves1, parameterToArgumentMap);
             //compare leaves from T1 with leaves from T2
             processLeaves(leaves1, leaves2, parameterToArgumentMap);
 
@@ -525,8 +449,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
             //adding innerNodes that were mapped with replacements or are inexact matches
             Set<CompositeStatementObject> addedInnerNodes2 = new LinkedHashSet<>();
             for (AbstractCodeMapping mapping : operationBodyMapper.getMappings()) {
-                if (!mapping.getReplacements().isEmpty() || !mapping.getFragment1().equalFragment(
-                    mapping.getFragment2())) {
+                if (!mapping.getReplacements().isEmpty() || !mapping.equalFragments()) {
                     AbstractCodeFragment fragment = mapping.getFragment2();
                     if (fragment instanceof CompositeStatementObject) {
                         CompositeStatementObject statement = (CompositeStatementObject) fragment;
@@ -537,13 +460,8 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     }
                 }
             }
-            resetNodes(innerNodes1);
             //replace parameters with arguments in innerNodes1
-            if (!parameterToArgumentMap.isEmpty()) {
-                for (CompositeStatementObject innerNode1 : innerNodes1) {
-                    innerNode1.replaceParametersWithArguments(parameterToArgumentMap);
-                }
-            }
+            argumentizedStrings.argumentize(innerNodes1, parameterToArgumentMap);
             //compare inner nodes from T1 with inner nodes from T2
             processInnerNodes(innerNodes1, innerNodes2, parameterToArgumentMap);
 
@@ -612,10 +530,17 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         return nullLiteralReplacements > 0 && numberOfReplacements == nullLiteralReplacements + methodInvocationReplacementsToIgnore + variableNameReplacementsToIgnore;
     }
 
-    private void resetNodes(List<? extends AbstractCodeFragment> nodes) {
-        for (AbstractCodeFragment node : nodes) {
-            node.resetArgumentization();
+    /**
+     * @return The only parameter of the list, if its type looks like the class of the operation, otherwise null.
+     */
+    private static UMLParameter parameterOfClass(List<UMLParameter> parameters, UMLOperation operation) {
+        if (parameters.size() == 1) {
+            UMLParameter parameter = parameters.get(0);
+            if (UMLModelDiff.looksLikeSameType(parameter.getType().getClassType(), operation.getClassName())) {
+                return parameter;
+            }
         }
+        return null;
     }
 
     public void processLeaves(List<? extends AbstractCodeFragment> leaves1,
@@ -623,14 +548,13 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                               Map<String, String> parameterToArgumentMap) throws RefactoringMinerTimedOutException {
         List<TreeSet<LeafMapping>> postponedMappingSets = new ArrayList<>();
         if (leaves1.size() <= leaves2.size()) {
+            ExactMatchIndex<AbstractCodeFragment> leafIndex2 = new ExactMatchIndex<>(leaves2, argumentizedStrings);
             //exact string+depth matching - leaf nodes
             for (ListIterator<? extends AbstractCodeFragment> leafIterator1 =
                  leaves1.listIterator(); leafIterator1.hasNext(); ) {
                 AbstractCodeFragment leaf1 = leafIterator1.next();
                 TreeSet<LeafMapping> mappingSet = new TreeSet<>();
-                for (ListIterator<? extends AbstractCodeFragment> leafIterator2 =
-                     leaves2.listIterator(); leafIterator2.hasNext(); ) {
-                    AbstractCodeFragment leaf2 = leafIterator2.next();
+                for (AbstractCodeFragment leaf2 : leafIndex2.getCandidates(leaf1)) {
                     String argumentizedString1 = preprocessInput1(leaf1, leaf2);
                     String argumentizedString2 = preprocessInput2(leaf1, leaf2);
                     if ((leaf1.getString().equals(leaf2.getString()) || argumentizedString1.equals(
@@ -643,6 +567,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     LeafMapping minStatementMapping = mappingSet.first();
                     mappings.add(minStatementMapping);
                     leaves2.remove(minStatementMapping.getFragment2());
+                    leafIndex2.remove(minStatementMapping.getFragment2());
                     leafIterator1.remove();
                 }
             }
@@ -652,9 +577,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                  leaves1.listIterator(); leafIterator1.hasNext(); ) {
                 AbstractCodeFragment leaf1 = leafIterator1.next();
                 TreeSet<LeafMapping> mappingSet = new TreeSet<>();
-                for (ListIterator<? extends AbstractCodeFragment> leafIterator2 =
-                     leaves2.listIterator(); leafIterator2.hasNext(); ) {
-                    AbstractCodeFragment leaf2 = leafIterator2.next();
+                for (AbstractCodeFragment leaf2 : leafIndex2.getCandidates(leaf1)) {
                     String argumentizedString1 = preprocessInput1(leaf1, leaf2);
                     String argumentizedString2 = preprocessInput2(leaf1, leaf2);
                     if ((leaf1.getString().equals(leaf2.getString()) || argumentizedString1.equals(
@@ -667,6 +590,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     LeafMapping minStatementMapping = mappingSet.first();
                     mappings.add(minStatementMapping);
                     leaves2.remove(minStatementMapping.getFragment2());
+                    leafIndex2.remove(minStatementMapping.getFragment2());
                     leafIterator1.remove();
                 }
             }
@@ -730,14 +654,13 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                 }
             }
         } else {
+            ExactMatchIndex<AbstractCodeFragment> leafIndex1 = new ExactMatchIndex<>(leaves1, argumentizedStrings);
             //exact string+depth matching - leaf nodes
             for (ListIterator<? extends AbstractCodeFragment> leafIterator2 =
                  leaves2.listIterator(); leafIterator2.hasNext(); ) {
                 AbstractCodeFragment leaf2 = leafIterator2.next();
                 TreeSet<LeafMapping> mappingSet = new TreeSet<>();
-                for (ListIterator<? extends AbstractCodeFragment> leafIterator1 =
-                     leaves1.listIterator(); leafIterator1.hasNext(); ) {
-                    AbstractCodeFragment leaf1 = leafIterator1.next();
+                for (AbstractCodeFragment leaf1 : leafIndex1.getCandidates(leaf2)) {
                     String argumentizedString1 = preprocessInput1(leaf1, leaf2);
                     String argumentizedString2 = preprocessInput2(leaf1, leaf2);
                     if ((leaf1.getString().equals(leaf2.getString()) || argumentizedString1.equals(
@@ -750,6 +673,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     LeafMapping minStatementMapping = mappingSet.first();
                     mappings.add(minStatementMapping);
                     leaves1.remove(minStatementMapping.getFragment1());
+                    leafIndex1.remove(minStatementMapping.getFragment1());
                     leafIterator2.remove();
                 }
             }
@@ -759,9 +683,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                  leaves2.listIterator(); leafIterator2.hasNext(); ) {
                 AbstractCodeFragment leaf2 = leafIterator2.next();
                 TreeSet<LeafMapping> mappingSet = new TreeSet<>();
-                for (ListIterator<? extends AbstractCodeFragment> leafIterator1 =
-                     leaves1.listIterator(); leafIterator1.hasNext(); ) {
-                    AbstractCodeFragment leaf1 = leafIterator1.next();
+                for (AbstractCodeFragment leaf1 : leafIndex1.getCandidates(leaf2)) {
                     String argumentizedString1 = preprocessInput1(leaf1, leaf2);
                     String argumentizedString2 = preprocessInput2(leaf1, leaf2);
                     if ((leaf1.getString().equals(leaf2.getString()) || argumentizedString1.equals(
@@ -774,6 +696,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     LeafMapping minStatementMapping = mappingSet.first();
                     mappings.add(minStatementMapping);
                     leaves1.remove(minStatementMapping.getFragment1());
+                    leafIndex1.remove(minStatementMapping.getFragment1());
                     leafIterator2.remove();
                 }
             }
@@ -879,6 +802,17 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         return operation2;
     }
 
+    public UMLClassBaseDiff getClassDiff() {
+        return classDiff;
+    }
+
+    /**
+     * @return The strings of the statements compared by this mapper after replacing parameters with arguments.
+     */
+    public ArgumentizedStrings getArgumentizedStrings() {
+        return argumentizedStrings;
+    }
+
     public List<UMLOperationBodyMapper> getChildMappers() {
         return childMappers;
     }
@@ -936,7 +870,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                                           Map<String, String> parameterToArgumentMap) {
         UMLOperation operation1 = codeFragmentOperationMap1.getOrDefault(leaf1, this.operation1);
         UMLOperation operation2 = codeFragmentOperationMap2.getOrDefault(leaf2, this.operation2);
-        LeafMapping mapping = new LeafMapping(leaf1, leaf2, operation1, operation2);
+        LeafMapping mapping = new LeafMapping(leaf1, leaf2, operation1, operation2, argumentizedStrings);
         for (String key : parameterToArgumentMap.keySet()) {
             String value = parameterToArgumentMap.get(key);
             if (!key.equals(value) && ReplacementUtil.contains(leaf2.getString(), key) &&
@@ -966,15 +900,18 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         List<UMLOperation> removedOperations = classDiff != null ? classDiff.getRemovedOperations() : new ArrayList<>();
         List<UMLOperation> addedOperations = classDiff != null ? classDiff.getAddedOperations() : new ArrayList<>();
         if (innerNodes1.size() <= innerNodes2.size()) {
+            ExactMatchIndex<CompositeStatementObject> innerNodeIndex2 =
+                new ExactMatchIndex<>(innerNodes2, argumentizedStrings);
             //exact string+depth matching - inner nodes
             for (ListIterator<CompositeStatementObject> innerNodeIterator1 =
                  innerNodes1.listIterator(); innerNodeIterator1.hasNext(); ) {
                 CompositeStatementObject statement1 = innerNodeIterator1.next();
                 TreeSet<CompositeStatementObjectMapping> mappingSet = new TreeSet<>();
-                innerNodes2.forEach(statement2 -> {
+                for (CompositeStatementObject statement2 :
+                    getExactMatchCandidates(statement1, innerNodes2, innerNodeIndex2)) {
                     double score = computeScore(statement1, statement2, removedOperations, addedOperations);
                     if ((statement1.getString().equals(statement2.getString()) ||
-                        statement1.getArgumentizedString().equals(statement2.getArgumentizedString())) &&
+                        argumentizedStrings.get(statement1).equals(argumentizedStrings.get(statement2))) &&
                         statement1.getDepth() == statement2.getDepth() &&
                         (score > 0 || Math.max(statement1.getStatements().size(),
                             statement2.getStatements().size()) == 0)) {
@@ -982,11 +919,12 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                             createCompositeMapping(statement1, statement2, parameterToArgumentMap, score);
                         mappingSet.add(mapping);
                     }
-                });
+                }
                 if (!mappingSet.isEmpty()) {
                     CompositeStatementObjectMapping minStatementMapping = mappingSet.first();
                     mappings.add(minStatementMapping);
                     innerNodes2.remove(minStatementMapping.getFragment2());
+                    innerNodeIndex2.remove(minStatementMapping.getFragment2());
                     innerNodeIterator1.remove();
                 }
             }
@@ -996,21 +934,23 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                  innerNodes1.listIterator(); innerNodeIterator1.hasNext(); ) {
                 CompositeStatementObject statement1 = innerNodeIterator1.next();
                 TreeSet<CompositeStatementObjectMapping> mappingSet = new TreeSet<>();
-                innerNodes2.forEach(statement2 -> {
+                for (CompositeStatementObject statement2 :
+                    getExactMatchCandidates(statement1, innerNodes2, innerNodeIndex2)) {
                     double score = computeScore(statement1, statement2, removedOperations, addedOperations);
                     if ((statement1.getString().equals(statement2.getString()) ||
-                        statement1.getArgumentizedString().equals(statement2.getArgumentizedString())) &&
+                        argumentizedStrings.get(statement1).equals(argumentizedStrings.get(statement2))) &&
                         (score > 0 || Math.max(statement1.getStatements().size(),
                             statement2.getStatements().size()) == 0)) {
                         CompositeStatementObjectMapping mapping =
                             createCompositeMapping(statement1, statement2, parameterToArgumentMap, score);
                         mappingSet.add(mapping);
                     }
-                });
+                }
                 if (!mappingSet.isEmpty()) {
                     CompositeStatementObjectMapping minStatementMapping = mappingSet.first();
                     mappings.add(minStatementMapping);
                     innerNodes2.remove(minStatementMapping.getFragment2());
+                    innerNodeIndex2.remove(minStatementMapping.getFragment2());
                     innerNodeIterator1.remove();
                 }
             }
@@ -1052,15 +992,18 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                 }
             }
         } else {
+            ExactMatchIndex<CompositeStatementObject> innerNodeIndex1 =
+                new ExactMatchIndex<>(innerNodes1, argumentizedStrings);
             //exact string+depth matching - inner nodes
             for (ListIterator<CompositeStatementObject> innerNodeIterator2 =
                  innerNodes2.listIterator(); innerNodeIterator2.hasNext(); ) {
                 CompositeStatementObject statement2 = innerNodeIterator2.next();
                 TreeSet<CompositeStatementObjectMapping> mappingSet = new TreeSet<>();
-                innerNodes1.forEach(statement1 -> {
+                for (CompositeStatementObject statement1 :
+                    getExactMatchCandidates(statement2, innerNodes1, innerNodeIndex1)) {
                     double score = computeScore(statement1, statement2, removedOperations, addedOperations);
                     if ((statement1.getString().equals(statement2.getString()) ||
-                        statement1.getArgumentizedString().equals(statement2.getArgumentizedString())) &&
+                        argumentizedStrings.get(statement1).equals(argumentizedStrings.get(statement2))) &&
                         statement1.getDepth() == statement2.getDepth() &&
                         (score > 0 || Math.max(statement1.getStatements().size(),
                             statement2.getStatements().size()) == 0)) {
@@ -1068,11 +1011,12 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                             createCompositeMapping(statement1, statement2, parameterToArgumentMap, score);
                         mappingSet.add(mapping);
                     }
-                });
+                }
                 if (!mappingSet.isEmpty()) {
                     CompositeStatementObjectMapping minStatementMapping = mappingSet.first();
                     mappings.add(minStatementMapping);
                     innerNodes1.remove(minStatementMapping.getFragment1());
+                    innerNodeIndex1.remove(minStatementMapping.getFragment1());
                     innerNodeIterator2.remove();
                 }
             }
@@ -1082,21 +1026,23 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                  innerNodes2.listIterator(); innerNodeIterator2.hasNext(); ) {
                 CompositeStatementObject statement2 = innerNodeIterator2.next();
                 TreeSet<CompositeStatementObjectMapping> mappingSet = new TreeSet<>();
-                innerNodes1.forEach(statement1 -> {
+                for (CompositeStatementObject statement1 :
+                    getExactMatchCandidates(statement2, innerNodes1, innerNodeIndex1)) {
                     double score = computeScore(statement1, statement2, removedOperations, addedOperations);
                     if ((statement1.getString().equals(statement2.getString()) ||
-                        statement1.getArgumentizedString().equals(statement2.getArgumentizedString())) &&
+                        argumentizedStrings.get(statement1).equals(argumentizedStrings.get(statement2))) &&
                         (score > 0 || Math.max(statement1.getStatements().size(),
                             statement2.getStatements().size()) == 0)) {
                         CompositeStatementObjectMapping mapping =
                             createCompositeMapping(statement1, statement2, parameterToArgumentMap, score);
                         mappingSet.add(mapping);
                     }
-                });
+                }
                 if (!mappingSet.isEmpty()) {
                     CompositeStatementObjectMapping minStatementMapping = mappingSet.first();
                     mappings.add(minStatementMapping);
                     innerNodes1.remove(minStatementMapping.getFragment1());
+                    innerNodeIndex1.remove(minStatementMapping.getFragment1());
                     innerNodeIterator2.remove();
                 }
             }
@@ -1146,8 +1092,8 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                                                                    double score) {
         UMLOperation operation1 = codeFragmentOperationMap1.getOrDefault(statement1, this.operation1);
         UMLOperation operation2 = codeFragmentOperationMap2.getOrDefault(statement2, this.operation2);
-        CompositeStatementObjectMapping mapping =
-            new CompositeStatementObjectMapping(statement1, statement2, operation1, operation2, score);
+        CompositeStatementObjectMapping mapping = new CompositeStatementObjectMapping(statement1, statement2,
+            operation1, operation2, score, argumentizedStrings);
         for (String key : parameterToArgumentMap.keySet()) {
             String value = parameterToArgumentMap.get(key);
             if (!key.equals(value) && ReplacementUtil.contains(statement2.getString(), key) &&
@@ -1167,6 +1113,16 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         return compositeChildMatchingScore(statement1, statement2, mappings, removedOperations, addedOperations);
     }
 
+    /**
+     * In a child mapper, scoring a pair of composite statements may add the statements of a single block child
+     * to the statements of its parent, so every pair is still scored in the same order as before.
+     */
+    private List<CompositeStatementObject> getExactMatchCandidates(CompositeStatementObject statement,
+                                                                   List<CompositeStatementObject> innerNodes,
+                                                                   ExactMatchIndex<CompositeStatementObject> index) {
+        return parentMapper != null ? innerNodes : index.getCandidates(statement);
+    }
+
     private boolean matchesOperation(OperationInvocation invocation,
                                      List<UMLOperation> operations,
                                      Map<String, UMLType> variableTypeMap) {
@@ -1193,10 +1149,12 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
             !comp2.getString().equals("{")) {
             if (compStatements1.get(0).getString().equals("{") && !compStatements2.get(0).getString().equals("{")) {
                 CompositeStatementObject block = (CompositeStatementObject) compStatements1.get(0);
+                compStatements1 = new ArrayList<>(compStatements1);
                 compStatements1.addAll(block.getStatements());
             }
             if (!compStatements1.get(0).getString().equals("{") && compStatements2.get(0).getString().equals("{")) {
                 CompositeStatementObject block = (CompositeStatementObject) compStatements2.get(0);
+                compStatements2 = new ArrayList<>(compStatements2);
                 compStatements2.addAll(block.getStatements());
             }
         }
@@ -2743,7 +2701,8 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                         String temp =
                             ReplacementUtil.performReplacement(replacementInfo.getArgumentizedString1(), after + suffix,
                                 after);
-                        int distanceRaw = StringDistance.editDistance(temp, replacementInfo.getArgumentizedString2());
+                        int distanceRaw = StringDistance.editDistance(temp, replacementInfo.getArgumentizedString2(),
+                            replacementInfo.getRawDistance() - 1);
                         if (distanceRaw >= 0 && distanceRaw < replacementInfo.getRawDistance()) {
                             replacementsToBeRemoved.add(replacement);
                             Replacement newReplacement =
@@ -3933,7 +3892,8 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     }
                     String temp = ReplacementUtil.performReplacement(replacementInfo.getArgumentizedString1(),
                         replacementInfo.getArgumentizedString2(), s1, s2);
-                    int distanceRaw = StringDistance.editDistance(temp, replacementInfo.getArgumentizedString2());
+                    int distanceRaw = StringDistance.editDistance(temp, replacementInfo.getArgumentizedString2(),
+                        replacementInfo.getRawDistance() - 1);
                     if (distanceRaw >= 0 && distanceRaw < replacementInfo.getRawDistance()) {
                         Replacement replacement = new Replacement(s1, s2, type);
                         double distancenormalized = (double) distanceRaw / (double) Math.max(temp.length(),
@@ -3982,7 +3942,8 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     }
                     String temp = ReplacementUtil.performReplacement(replacementInfo.getArgumentizedString1(),
                         replacementInfo.getArgumentizedString2(), s1, s2);
-                    int distanceRaw = StringDistance.editDistance(temp, replacementInfo.getArgumentizedString2());
+                    int distanceRaw = StringDistance.editDistance(temp, replacementInfo.getArgumentizedString2(),
+                        replacementInfo.getRawDistance() - 1);
                     if (distanceRaw >= 0 && distanceRaw < replacementInfo.getRawDistance()) {
                         Replacement replacement = new Replacement(s1, s2, type);
                         double distancenormalized = (double) distanceRaw / (double) Math.max(temp.length(),
@@ -4231,7 +4192,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
     }
 
     private String preprocessInput(AbstractCodeFragment leaf1, AbstractCodeFragment leaf2) {
-        String argumentizedString = leaf1.getArgumentizedString();
+        String argumentizedString = argumentizedStrings.get(leaf1);
         if (leaf1 instanceof StatementObject && leaf2 instanceof AbstractExpression) {
             if (argumentizedString.startsWith("return ") && argumentizedString.endsWith("\n")) {
                 argumentizedString = argumentizedString.substring("return ".length(),
@@ -4253,6 +4214,74 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         return nonMappedLeavesT2;
     }
 
+    /**
+     * Finds the fragments of a list that have the same string or the same argumentized string as a given fragment,
+     * without comparing it with every fragment of the list. The candidates are returned in the order of the list.
+     */
+    private static class ExactMatchIndex<T extends AbstractCodeFragment> {
+        private final Map<T, Integer> positions = new IdentityHashMap<>();
+        private final Map<String, List<T>> fragmentsByString = new HashMap<>();
+        private final Map<String, List<T>> fragmentsByArgumentizedString = new HashMap<>();
+        private final ArgumentizedStrings argumentizedStrings;
+
+        private ExactMatchIndex(List<? extends T> fragments, ArgumentizedStrings argumentizedStrings) {
+            this.argumentizedStrings = argumentizedStrings;
+            for (T fragment : fragments) {
+                positions.put(fragment, positions.size());
+                fragmentsByString.computeIfAbsent(fragment.getString(), k -> new ArrayList<>()).add(fragment);
+                for (String argumentizedString : getArgumentizedStrings(fragment)) {
+                    fragmentsByArgumentizedString.computeIfAbsent(argumentizedString, k -> new ArrayList<>())
+                        .add(fragment);
+                }
+            }
+        }
+
+        /**
+         * A return statement is compared with an expression without its return keyword, as in preprocessInput.
+         */
+        private List<String> getArgumentizedStrings(AbstractCodeFragment fragment) {
+            String argumentizedString = argumentizedStrings.get(fragment);
+            if (fragment instanceof StatementObject && argumentizedString.startsWith("return ") &&
+                argumentizedString.endsWith("\n")) {
+                return Arrays.asList(argumentizedString,
+                    argumentizedString.substring("return ".length(), argumentizedString.lastIndexOf("\n")));
+            }
+            return Collections.singletonList(argumentizedString);
+        }
+
+        private List<T> getCandidates(AbstractCodeFragment fragment) {
+            Set<T> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+            candidates.addAll(fragmentsByString.getOrDefault(fragment.getString(), Collections.emptyList()));
+            for (String argumentizedString : getArgumentizedStrings(fragment)) {
+                candidates.addAll(
+                    fragmentsByArgumentizedString.getOrDefault(argumentizedString, Collections.emptyList()));
+            }
+            List<T> sortedCandidates = new ArrayList<>(candidates);
+            sortedCandidates.sort(Comparator.comparingInt(positions::get));
+            return sortedCandidates;
+        }
+
+        private void remove(AbstractCodeFragment fragment) {
+            if (positions.remove(fragment) == null) {
+                return;
+            }
+            removeFromBucket(fragmentsByString, fragment.getString(), fragment);
+            for (String argumentizedString : getArgumentizedStrings(fragment)) {
+                removeFromBucket(fragmentsByArgumentizedString, argumentizedString, fragment);
+            }
+        }
+
+        private void removeFromBucket(Map<String, List<T>> buckets, String key, AbstractCodeFragment fragment) {
+            List<T> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.removeIf(f -> f == fragment);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
     private static class ReplacementInfo {
         private String argumentizedString1;
         private final String argumentizedString2;
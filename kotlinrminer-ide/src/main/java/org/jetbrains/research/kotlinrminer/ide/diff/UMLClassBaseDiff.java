@@ -78,9 +78,23 @@ public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
     }
 
     public void process() throws RefactoringMinerTimedOutException {
+        processDeclarations();
+        processBodies();
+    }
+
+    /**
+     * Compares the annotations, the inheritance and the operations of the classes.
+     */
+    void processDeclarations() throws RefactoringMinerTimedOutException {
         processAnnotations();
         processInheritance();
         processOperations();
+    }
+
+    /**
+     * Maps the bodies of the operations and compares the attributes, after {@link #processDeclarations()}.
+     */
+    void processBodies() throws RefactoringMinerTimedOutException {
         createBodyMappers();
         processAttributes();
         checkForAttributeChanges();
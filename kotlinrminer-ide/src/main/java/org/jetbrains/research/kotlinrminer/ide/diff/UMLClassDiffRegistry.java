@@ -0,0 +1,149 @@
+package org.jetbrains.research.kotlinrminer.ide.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.research.kotlinrminer.ide.uml.UMLClass;
+import org.jetbrains.research.kotlinrminer.ide.uml.UMLType;
+
+/**
+ * Indexes the class diffs of a model diff by the qualified and the simple names of their original and next classes.
+ * A lookup returns the first matching diff in the order of the lists of the model diff: common classes, moved classes,
+ * inner class moves and renamed classes, each in the order the diffs were added.
+ */
+public class UMLClassDiffRegistry {
+    private static final int COMMON_CLASS = 0;
+    private static final int CLASS_MOVE = 1;
+    private static final int INNER_CLASS_MOVE = 2;
+    private static final int CLASS_RENAME = 3;
+
+    private final Map<UMLClassBaseDiff, Entry> entries = new IdentityHashMap<>();
+    private final Map<String, List<Entry>> entriesByQualifiedName = new HashMap<>();
+    private final Map<String, List<Entry>> entriesBySimpleName = new HashMap<>();
+    private int nextPosition;
+
+    public void addCommonClassDiff(UMLClassDiff classDiff) {
+        add(classDiff, COMMON_CLASS);
+    }
+
+    public void addClassMoveDiff(UMLClassMoveDiff classMoveDiff) {
+        add(classMoveDiff, CLASS_MOVE);
+    }
+
+    public void addClassRenameDiff(UMLClassRenameDiff classRenameDiff) {
+        add(classRenameDiff, CLASS_RENAME);
+    }
+
+    /**
+     * Moves a class move diff to the end of the inner class moves. A diff that is already an inner class move keeps
+     * its position.
+     */
+    public void markInnerClassMove(UMLClassMoveDiff classMoveDiff) {
+        Entry entry = entries.get(classMoveDiff);
+        if (entry.list != INNER_CLASS_MOVE) {
+            entry.list = INNER_CLASS_MOVE;
+            entry.position = nextPosition++;
+        }
+    }
+
+    /**
+     * @return The first class diff whose original or next class has the qualified name.
+     */
+    public UMLClassBaseDiff find(String className) {
+        Entry first = null;
+        for (Entry entry : bucket(entriesByQualifiedName, className)) {
+            if (entry.classDiff.matches(className) && entry.precedes(first)) {
+                first = entry;
+            }
+        }
+        return first != null ? first.classDiff : null;
+    }
+
+    /**
+     * @return The first class diff whose original or next class has a qualified name that ends with the type.
+     */
+    public UMLClassBaseDiff find(UMLType type) {
+        Entry first = null;
+        for (Entry entry : bucket(entriesBySimpleName, simpleName(type.getClassType()))) {
+            if (entry.classDiff.matches(type) && entry.precedes(first)) {
+                first = entry;
+            }
+        }
+        return first != null ? first.classDiff : null;
+    }
+
+    /**
+     * @return The first class move diff, not counting the inner class moves, of the original class.
+     */
+    public UMLClassMoveDiff findClassMove(UMLClass originalClass) {
+        return (UMLClassMoveDiff) findByOriginalClass(originalClass, CLASS_MOVE);
+    }
+
+    /**
+     * @return The first class rename diff of the original class.
+     */
+    public UMLClassRenameDiff findClassRename(UMLClass originalClass) {
+        return (UMLClassRenameDiff) findByOriginalClass(originalClass, CLASS_RENAME);
+    }
+
+    private UMLClassBaseDiff findByOriginalClass(UMLClass originalClass, int list) {
+        Entry first = null;
+        for (Entry entry : bucket(entriesByQualifiedName, originalClass.getQualifiedName())) {
+            if (entry.list == list && entry.classDiff.getOriginalClass().equals(originalClass) &&
+                entry.precedes(first)) {
+                first = entry;
+            }
+        }
+        return first != null ? first.classDiff : null;
+    }
+
+    private void add(UMLClassBaseDiff classDiff, int list) {
+        Entry entry = new Entry(classDiff, list, nextPosition++);
+        entries.put(classDiff, entry);
+        String originalClassName = classDiff.getOriginalClassName();
+        String nextClassName = classDiff.getNextClassName();
+        index(entriesByQualifiedName, originalClassName, entry);
+        index(entriesBySimpleName, simpleName(originalClassName), entry);
+        if (!nextClassName.equals(originalClassName)) {
+            index(entriesByQualifiedName, nextClassName, entry);
+            if (!simpleName(nextClassName).equals(simpleName(originalClassName))) {
+                index(entriesBySimpleName, simpleName(nextClassName), entry);
+            }
+        }
+    }
+
+    private static List<Entry> bucket(Map<String, List<Entry>> index, String key) {
+        return index.getOrDefault(key, Collections.emptyList());
+    }
+
+    private static void index(Map<String, List<Entry>> index, String key, Entry entry) {
+        index.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * A qualified name ends with "." followed by a type only if both have the same last segment.
+     */
+    private static String simpleName(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static class Entry {
+        private final UMLClassBaseDiff classDiff;
+        private int list;
+        private int position;
+
+        private Entry(UMLClassBaseDiff classDiff, int list, int position) {
+            this.classDiff = classDiff;
+            this.list = list;
+            this.position = position;
+        }
+
+        private boolean precedes(Entry other) {
+            return other == null || list < other.list || (list == other.list && position < other.position);
+        }
+    }
+}
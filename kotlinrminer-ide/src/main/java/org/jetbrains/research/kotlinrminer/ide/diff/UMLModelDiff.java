@@ -1,6 +1,9 @@
 package org.jetbrains.research.kotlinrminer.ide.diff;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.jetbrains.research.kotlinrminer.common.replacement.MergeVariableReplacement;
 import org.jetbrains.research.kotlinrminer.common.replacement.Replacement;
@@ -27,8 +30,31 @@ public class UMLModelDiff {
     private final List<UMLClassMoveDiff> innerClassMoveDiffList;
     private final List<UMLClassRenameDiff> classRenameDiffList;
     private final List<UMLClassDiff> commonClassDiffList;
+    /**
+     * Indexes the diffs of the four lists above by class name. It is updated whenever a diff is added to the lists or
+     * moved from the class moves to the inner class moves.
+     */
+    private final UMLClassDiffRegistry classDiffRegistry;
+    /**
+     * The added and removed classes by qualified name, in the order of their lists.
+     */
+    private final Map<String, List<UMLClass>> addedClassesByName;
+    private final Map<String, List<UMLClass>> removedClassesByName;
     private final List<UMLFileDiff> umlFileDiff;
     private final List<Refactoring> refactorings;
+    /**
+     * The outcomes of the pairs of operations compared while checking for operation moves, whose three passes
+     * compare mostly the same pairs. They are discarded whenever a move is found, since it changes the removed and
+     * added operations of the class diffs that the mappers consult.
+     */
+    private final Map<UMLOperation, Map<UMLOperation, OperationMoveCheck>> operationMoveChecks =
+        new IdentityHashMap<>();
+    /**
+     * The statement counts of the operations compared while checking for operation moves. They are discarded
+     * together with the mappers.
+     */
+    private final Map<UMLOperation, OperationBodyFingerprint> operationBodyFingerprints = new IdentityHashMap<>();
+    private ExecutorService mapperExecutor;
 
     public UMLModelDiff() {
         this.addedClasses = new ArrayList<>();
@@ -38,6 +64,9 @@ public class UMLModelDiff {
         this.innerClassMoveDiffList = new ArrayList<>();
         this.classRenameDiffList = new ArrayList<>();
         this.commonClassDiffList = new ArrayList<>();
+        this.classDiffRegistry = new UMLClassDiffRegistry();
+        this.addedClassesByName = new HashMap<>();
+        this.removedClassesByName = new HashMap<>();
         this.umlFileDiff = new ArrayList<>();
         this.refactorings = new ArrayList<>();
         this.addedGeneralizations = new ArrayList<>();
@@ -49,6 +78,16 @@ public class UMLModelDiff {
         this.removedRealizations = new ArrayList<>();
     }
 
+    /**
+     * Sets the executor that maps the bodies of the operations with the same signature in the common classes
+     * and of the operation pairs compared while checking for operation moves. If it is null, they are mapped on
+     * the current thread. The executor is not shut down by the diff, so it can be shared between the diffs of
+     * several commits. The detected refactorings do not depend on it.
+     */
+    public void setMapperExecutor(ExecutorService mapperExecutor) {
+        this.mapperExecutor = mapperExecutor;
+    }
+
     public static boolean looksLikeSameType(String parent, String addedClassName) {
         if (addedClassName.contains(".") && !parent.contains(".")) {
             return parent.equals(addedClassName.substring(addedClassName.lastIndexOf(".") + 1));
@@ -63,17 +102,23 @@ public class UMLModelDiff {
     }
 
     public void reportAddedClass(UMLClass umlClass) {
-        if (!addedClasses.contains(umlClass)) {
+        if (!classesNamed(addedClassesByName, umlClass.getQualifiedName()).contains(umlClass)) {
             this.addedClasses.add(umlClass);
+            addedClassesByName.computeIfAbsent(umlClass.getQualifiedName(), k -> new ArrayList<>()).add(umlClass);
         }
     }
 
     public void reportRemovedClass(UMLClass umlClass) {
-        if (!removedClasses.contains(umlClass)) {
+        if (!classesNamed(removedClassesByName, umlClass.getQualifiedName()).contains(umlClass)) {
             this.removedClasses.add(umlClass);
+            removedClassesByName.computeIfAbsent(umlClass.getQualifiedName(), k -> new ArrayList<>()).add(umlClass);
         }
     }
 
+    private static List<UMLClass> classesNamed(Map<String, List<UMLClass>> classesByName, String className) {
+        return classesByName.getOrDefault(className, Collections.emptyList());
+    }
+
     private Map<RenamePattern, Integer> typeRenamePatternMap(Set<Refactoring> refactorings) {
         Map<RenamePattern, Integer> typeRenamePatternMap = new LinkedHashMap<>();
         for (Refactoring ref : refactorings) {
@@ -414,21 +459,13 @@ public class UMLModelDiff {
     }
 
     public UMLClass getAddedClass(String className) {
-        for (UMLClass umlClass : addedClasses) {
-            if (umlClass.getQualifiedName().equals(className)) {
-                return umlClass;
-            }
-        }
-        return null;
+        List<UMLClass> classes = classesNamed(addedClassesByName, className);
+        return classes.isEmpty() ? null : classes.get(0);
     }
 
     public UMLClass getRemovedClass(String className) {
-        for (UMLClass umlClass : removedClasses) {
-            if (umlClass.getQualifiedName().equals(className)) {
-                return umlClass;
-            }
-        }
-        return null;
+        List<UMLClass> classes = classesNamed(removedClassesByName, className);
+        return classes.isEmpty() ? null : classes.get(0);
     }
 
     public List<Refactoring> getRefactorings() throws RefactoringMinerTimedOutException {
@@ -475,6 +512,7 @@ public class UMLModelDiff {
 /*                    extractMergePatterns(renameDiff, mergeMap);
                     extractRenamePatterns(renameDiff, renameMap);*/
                     classRenameDiffList.add(renameDiff);
+                    classDiffRegistry.addClassRenameDiff(renameDiff);
                     Refactoring refactoring;
                     //if (!removedClass.getName().equals(addedClass.getName())) {
                     if (renameDiff.samePackage()) {
@@ -566,6 +604,8 @@ public class UMLModelDiff {
         checkForOperationMovesBetweenCommonClasses();
         checkForOperationMovesIncludingAddedClasses();
         checkForOperationMovesIncludingRemovedClasses();
+        operationMoveChecks.clear();
+        operationBodyFingerprints.clear();
         refactorings.addAll(identifyExtractSuperclassRefactorings());
         refactorings.addAll(identifyExtractClassRefactorings(commonClassDiffList));
         refactorings.addAll(identifyExtractClassRefactorings(classMoveDiffList));
@@ -664,19 +704,16 @@ public class UMLModelDiff {
     private void checkForMovedAndInlinedOperations(List<UMLOperationBodyMapper> mappers,
                                                    List<UMLOperation> removedOperations) throws
         RefactoringMinerTimedOutException {
+        Map<UMLOperationBodyMapper, OperationInvocationIndex> invocationIndexes = new HashMap<>();
         for (UMLOperation removedOperation : removedOperations) {
             for (UMLOperationBodyMapper mapper : mappers) {
                 if (!mapper.getNonMappedLeavesT2().isEmpty() || !mapper.getNonMappedInnerNodesT2().isEmpty() ||
                     !mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
-                    List<OperationInvocation> operationInvocations =
-                        mapper.getOperation1().getAllOperationInvocations();
-                    List<OperationInvocation> removedOperationInvocations = new ArrayList<>();
-                    for (OperationInvocation invocation : operationInvocations) {
-                        if (invocation.matchesOperation(removedOperation, mapper.getOperation1().variableTypeMap(),
-                            this)) {
-                            removedOperationInvocations.add(invocation);
-                        }
-                    }
+                    OperationInvocationIndex invocationIndex = invocationIndexes.computeIfAbsent(mapper,
+                        m -> new OperationInvocationIndex(m.getOperation1().getAllOperationInvocations()));
+                    List<OperationInvocation> removedOperationInvocations =
+                        invocationIndex.matchingInvocations(removedOperation, mapper.getOperation1().variableTypeMap(),
+                            this);
                     if (removedOperationInvocations.size() > 0 && !invocationMatchesWithAddedOperation(
                         removedOperationInvocations.get(0), mapper.getOperation1().variableTypeMap(),
                         mapper.getOperation2().getAllOperationInvocations())) {
@@ -709,9 +746,11 @@ public class UMLModelDiff {
                                                         Map<String, UMLType> variableTypeMap,
                                                         List<OperationInvocation> operationInvocationsInNewMethod) {
         if (operationInvocationsInNewMethod.contains(removedOperationInvocation)) {
-            for (UMLOperation addedOperation : getAddedOperationsInCommonClasses()) {
-                if (removedOperationInvocation.matchesOperation(addedOperation, variableTypeMap, this)) {
-                    return true;
+            for (UMLClassDiff classDiff : commonClassDiffList) {
+                for (UMLOperation addedOperation : classDiff.getAddedOperations()) {
+                    if (removedOperationInvocation.matchesOperation(addedOperation, variableTypeMap, this)) {
+                        return true;
+                    }
                 }
             }
         }
@@ -729,19 +768,19 @@ public class UMLModelDiff {
     private void checkForExtractedAndMovedOperations(List<UMLOperationBodyMapper> mappers,
                                                      List<UMLOperation> addedOperations) throws
         RefactoringMinerTimedOutException {
+        //the extracted method mappers change only the non-mapped statements of the T1 side, so the invocations of
+        //the T2 side can be indexed once for each mapper
+        Map<UMLOperationBodyMapper, OperationInvocationIndex> invocationIndexes = new HashMap<>();
         for (UMLOperation addedOperation : addedOperations) {
             for (UMLOperationBodyMapper mapper : mappers) {
                 if ((mapper.nonMappedElementsT1() > 0 || !mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) &&
                     !mapper.containsExtractOperationRefactoring(addedOperation)) {
-                    List<OperationInvocation> operationInvocations =
-                        ExtractOperationDetection.getInvocationsInSourceOperationAfterExtraction(mapper);
-                    List<OperationInvocation> addedOperationInvocations = new ArrayList<>();
-                    for (OperationInvocation invocation : operationInvocations) {
-                        if (invocation.matchesOperation(addedOperation, mapper.getOperation2().variableTypeMap(),
-                            this)) {
-                            addedOperationInvocations.add(invocation);
-                        }
-                    }
+                    OperationInvocationIndex invocationIndex = invocationIndexes.computeIfAbsent(mapper,
+                        m -> new OperationInvocationIndex(
+                            ExtractOperationDetection.getInvocationsInSourceOperationAfterExtraction(m)));
+                    List<OperationInvocation> addedOperationInvocations =
+                        invocationIndex.matchingInvocations(addedOperation, mapper.getOperation2().variableTypeMap(),
+                            this);
                     if (addedOperationInvocations.size() > 0) {
                         OperationInvocation addedOperationInvocation = addedOperationInvocations.get(0);
                         List<String> arguments = addedOperationInvocation.getArguments();
@@ -970,51 +1009,11 @@ public class UMLModelDiff {
     }
 
     private UMLClassBaseDiff getUMLClassDiff(String className) {
-        for (UMLClassDiff classDiff : commonClassDiffList) {
-            if (classDiff.matches(className)) {
-                return classDiff;
-            }
-        }
-        for (UMLClassMoveDiff classDiff : classMoveDiffList) {
-            if (classDiff.matches(className)) {
-                return classDiff;
-            }
-        }
-        for (UMLClassMoveDiff classDiff : innerClassMoveDiffList) {
-            if (classDiff.matches(className)) {
-                return classDiff;
-            }
-        }
-        for (UMLClassRenameDiff classDiff : classRenameDiffList) {
-            if (classDiff.matches(className)) {
-                return classDiff;
-            }
-        }
-        return null;
+        return classDiffRegistry.find(className);
     }
 
     private UMLClassBaseDiff getUMLClassDiff(UMLType type) {
-        for (UMLClassDiff classDiff : commonClassDiffList) {
-            if (classDiff.matches(type)) {
-                return classDiff;
-            }
-        }
-        for (UMLClassMoveDiff classDiff : classMoveDiffList) {
-            if (classDiff.matches(type)) {
-                return classDiff;
-            }
-        }
-        for (UMLClassMoveDiff classDiff : innerClassMoveDiffList) {
-            if (classDiff.matches(type)) {
-                return classDiff;
-            }
-        }
-        for (UMLClassRenameDiff classDiff : classRenameDiffList) {
-            if (classDiff.matches(type)) {
-                return classDiff;
-            }
-        }
-        return null;
+        return classDiffRegistry.find(type);
     }
 
     public boolean commonlyImplementedOperations(UMLOperation operation1,
@@ -1281,13 +1280,19 @@ public class UMLModelDiff {
     public void checkForMovedClasses(Map<String, String> renamedFileHints,
                                      Set<String> repositoryDirectories, UMLClassMatcher matcher) throws
         RefactoringMinerTimedOutException {
+        Map<String, List<UMLClass>> addedClassesBySimpleName = new HashMap<>();
+        if (matcher.matchesOnlySameName()) {
+            for (UMLClass addedClass : addedClasses) {
+                addedClassesBySimpleName.computeIfAbsent(addedClass.getName(), k -> new ArrayList<>()).add(addedClass);
+            }
+        }
         for (Iterator<UMLClass> removedClassIterator = removedClasses.iterator();
              removedClassIterator.hasNext(); ) {
             UMLClass removedClass = removedClassIterator.next();
             TreeSet<UMLClassMoveDiff> diffSet = new TreeSet<>(new ClassMoveComparator());
-            for (UMLClass addedClass : addedClasses) {
-                String removedClassSourceFile = removedClass.getSourceFile();
-                String renamedFile = renamedFileHints.get(removedClassSourceFile);
+            String removedClassSourceFile = removedClass.getSourceFile();
+            String renamedFile = renamedFileHints.get(removedClassSourceFile);
+            if (!addedClasses.isEmpty()) {
                 String removedClassSourceFolder = "";
                 if (removedClassSourceFile.contains("/")) {
                     removedClassSourceFolder =
@@ -1304,6 +1309,10 @@ public class UMLModelDiff {
                         }
                     }
                 }
+            }
+            List<UMLClass> candidateClasses = matcher.matchesOnlySameName() ?
+                classesNamed(addedClassesBySimpleName, removedClass.getName()) : addedClasses;
+            for (UMLClass addedClass : candidateClasses) {
                 if (matcher.match(removedClass, addedClass, renamedFile)) {
                     if (!conflictingMoveOfTopLevelClass(removedClass, addedClass)) {
                         UMLClassMoveDiff classMoveDiff = new UMLClassMoveDiff(removedClass, addedClass, this);
@@ -1315,8 +1324,12 @@ public class UMLModelDiff {
                 UMLClassMoveDiff minClassMoveDiff = diffSet.first();
                 minClassMoveDiff.process();
                 classMoveDiffList.add(minClassMoveDiff);
-                addedClasses.remove(minClassMoveDiff.getMovedClass());
+                classDiffRegistry.addClassMoveDiff(minClassMoveDiff);
+                removeAddedClass(minClassMoveDiff.getMovedClass());
+                classesNamed(addedClassesBySimpleName, minClassMoveDiff.getMovedClass().getName())
+                    .remove(minClassMoveDiff.getMovedClass());
                 removedClassIterator.remove();
+                classesNamed(removedClassesByName, removedClass.getQualifiedName()).remove(removedClass);
             }
         }
 
@@ -1329,6 +1342,7 @@ public class UMLModelDiff {
                 UMLClassMoveDiff classMoveJ = allClassMoves.get(j);
                 if (classMoveI.isInnerClassMove(classMoveJ)) {
                     innerClassMoveDiffList.add(classMoveJ);
+                    classDiffRegistry.markInnerClassMove(classMoveJ);
                 }
             }
         }
@@ -1357,8 +1371,10 @@ public class UMLModelDiff {
                 UMLClassRenameDiff minClassRenameDiff = diffSet.first();
                 minClassRenameDiff.process();
                 classRenameDiffList.add(minClassRenameDiff);
-                addedClasses.remove(minClassRenameDiff.getRenamedClass());
+                classDiffRegistry.addClassRenameDiff(minClassRenameDiff);
+                removeAddedClass(minClassRenameDiff.getRenamedClass());
                 removedClassIterator.remove();
+                classesNamed(removedClassesByName, removedClass.getQualifiedName()).remove(removedClass);
             }
         }
 
@@ -1369,12 +1385,181 @@ public class UMLModelDiff {
             for (UMLClassMoveDiff classMove : allClassMoves) {
                 if (classRename.isInnerClassMove(classMove)) {
                     innerClassMoveDiffList.add(classMove);
+                    classDiffRegistry.markInnerClassMove(classMove);
                 }
             }
         }
         this.classMoveDiffList.removeAll(innerClassMoveDiffList);
     }
 
+    private void removeAddedClass(UMLClass addedClass) {
+        addedClasses.remove(addedClass);
+        classesNamed(addedClassesByName, addedClass.getQualifiedName()).remove(addedClass);
+    }
+
+    /**
+     * @return The mappers of the pairs of removed and added operations that may be moves, in the order of the pairs.
+     * The pairs rejected in the previous passes are skipped, and the mappers that are not reused from them are
+     * created on the worker threads.
+     */
+    private List<UMLOperationBodyMapper> getOperationMoveMappers(List<UMLOperation> removedOperations,
+                                                                 List<UMLOperation> addedOperations) throws
+        RefactoringMinerTimedOutException {
+        List<UMLOperation> pairRemovedOperations = new ArrayList<>();
+        List<UMLOperation> pairAddedOperations = new ArrayList<>();
+        List<UMLOperationBodyMapper> mappers = new ArrayList<>();
+        List<Integer> newMapperIndices = new ArrayList<>();
+        for (UMLOperation removedOperation : removedOperations) {
+            for (UMLOperation addedOperation : addedOperations) {
+                if (!cannotMapMoreElementsThanNonMapped(removedOperation, addedOperation)) {
+                    OperationMoveCheck check = getOperationMoveCheck(removedOperation, addedOperation);
+                    if (check != null && check.mapper == null) {
+                        continue;
+                    }
+                    if (check == null) {
+                        newMapperIndices.add(mappers.size());
+                    }
+                    pairRemovedOperations.add(removedOperation);
+                    pairAddedOperations.add(addedOperation);
+                    mappers.add(check != null ? check.mapper : null);
+                }
+            }
+        }
+        if (mapperExecutor != null && newMapperIndices.size() > 1) {
+            List<Future<UMLOperationBodyMapper>> futures = new ArrayList<>();
+            try {
+                for (int i : newMapperIndices) {
+                    UMLOperation removedOperation = pairRemovedOperations.get(i);
+                    UMLOperation addedOperation = pairAddedOperations.get(i);
+                    UMLClassBaseDiff classDiff = getUMLClassDiff(removedOperation.getClassName());
+                    futures.add(mapperExecutor.submit(
+                        () -> new UMLOperationBodyMapper(removedOperation, addedOperation, classDiff)));
+                }
+                for (int j = 0; j < futures.size(); j++) {
+                    mappers.set(newMapperIndices.get(j), awaitMapper(futures.get(j)));
+                }
+            } finally {
+                for (Future<UMLOperationBodyMapper> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        } else {
+            for (int i : newMapperIndices) {
+                UMLOperation removedOperation = pairRemovedOperations.get(i);
+                mappers.set(i, new UMLOperationBodyMapper(removedOperation, pairAddedOperations.get(i),
+                    getUMLClassDiff(removedOperation.getClassName())));
+            }
+        }
+        return mappers;
+    }
+
+    /**
+     * @return The outcome of the check of the operations in a previous pass, or null if they have to be mapped again.
+     */
+    private OperationMoveCheck getOperationMoveCheck(UMLOperation removedOperation, UMLOperation addedOperation) {
+        OperationMoveCheck check =
+            operationMoveChecks.getOrDefault(removedOperation, Collections.emptyMap()).get(addedOperation);
+        if (check == null || check.classDiff != getUMLClassDiff(removedOperation.getClassName())) {
+            return null;
+        }
+        if (check.mapper == null && check.addedClass != getAddedClass(addedOperation.getClassName())) {
+            return null;
+        }
+        return check;
+    }
+
+    /**
+     * Checks whether the mapper of a possible operation move has enough mappings, and remembers the outcome for
+     * the next passes. The check may add mappings to the mapper, so a mapper is kept only if it passes the check
+     * unchanged, while for a rejected pair only the rejection is kept. The other mappers are created again
+     * in the next passes, as they were before the check.
+     */
+    private boolean isOperationMoveCandidate(UMLOperationBodyMapper operationBodyMapper) {
+        int nonMappedLeavesT1 = operationBodyMapper.getNonMappedLeavesT1().size();
+        int mappings = operationBodyMapper.mappingsWithoutBlocks();
+        boolean candidate = mappings > 0 && mappedElementsMoreThanNonMappedT1AndT2(mappings, operationBodyMapper);
+        UMLOperation addedOperation = operationBodyMapper.getOperation2();
+        Map<UMLOperation, OperationMoveCheck> checks =
+            operationMoveChecks.computeIfAbsent(operationBodyMapper.getOperation1(), k -> new IdentityHashMap<>());
+        if (!candidate) {
+            checks.put(addedOperation, new OperationMoveCheck(operationBodyMapper.getClassDiff(),
+                getAddedClass(addedOperation.getClassName()), null));
+        } else if (operationBodyMapper.getNonMappedLeavesT1().size() == nonMappedLeavesT1) {
+            checks.put(addedOperation, new OperationMoveCheck(operationBodyMapper.getClassDiff(), null,
+                operationBodyMapper));
+        } else {
+            checks.remove(addedOperation);
+        }
+        return candidate;
+    }
+
+    private static UMLOperationBodyMapper awaitMapper(Future<UMLOperationBodyMapper> future) throws
+        RefactoringMinerTimedOutException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new RefactoringMinerTimedOutException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RefactoringMinerTimedOutException) {
+                throw (RefactoringMinerTimedOutException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Bounds the result of {@link #mappedElementsMoreThanNonMappedT1AndT2} from the statement counts of the
+     * operations, without mapping their bodies. Each pass of the mapper maps every statement of the operation with
+     * fewer leaves (or inner nodes) at most once, and every statement that it does not map remains non-mapped.
+     * This does not hold for the statements of lambda bodies, which are mapped separately, so operations containing
+     * lambdas are only ruled out when they have nothing to map.
+     *
+     * @return true if the mapper of the operations certainly has no mappings or fails the check.
+     */
+    private boolean cannotMapMoreElementsThanNonMapped(UMLOperation removedOperation, UMLOperation addedOperation) {
+        OperationBodyFingerprint fingerprint1 =
+            operationBodyFingerprints.computeIfAbsent(removedOperation, OperationBodyFingerprint::new);
+        OperationBodyFingerprint fingerprint2 =
+            operationBodyFingerprints.computeIfAbsent(addedOperation, OperationBodyFingerprint::new);
+        if (!fingerprint1.hasBody || !fingerprint2.hasBody) {
+            return true;
+        }
+        int maxMappings = Math.min(fingerprint1.leaves, fingerprint2.leaves) +
+            Math.min(fingerprint1.innerNodes, fingerprint2.innerNodes);
+        if (maxMappings == 0) {
+            return true;
+        }
+        if (fingerprint1.containsLambdas || fingerprint2.containsLambdas) {
+            return false;
+        }
+        int maxMappingsWithoutBlocks =
+            (fingerprint1.leaves <= fingerprint2.leaves ? fingerprint1.countableLeaves : fingerprint2.countableLeaves) +
+                (fingerprint1.innerNodes <= fingerprint2.innerNodes ? fingerprint1.countableInnerNodes :
+                    fingerprint2.countableInnerNodes);
+        if (maxMappingsWithoutBlocks == 0) {
+            return true;
+        }
+        int minNonMappedElementsT1 = fingerprint1.countableLeaves + fingerprint1.countableInnerNodes - maxMappings;
+        int minNonMappedElementsT2 = fingerprint2.countableLeaves + fingerprint2.countableInnerNodes - maxMappings;
+        int maxExcludedElements = fingerprint1.maxStatementsDeclaringSameVariable(fingerprint2) +
+            fingerprint1.initializedVariableDeclarations + fingerprint1.loops * fingerprint2.loops;
+        boolean moreMappedThanNonMappedT1AndT2 =
+            maxMappingsWithoutBlocks > minNonMappedElementsT1 - maxExcludedElements &&
+                maxMappingsWithoutBlocks > minNonMappedElementsT2 - maxExcludedElements;
+        boolean allMappedT1 = minNonMappedElementsT1 - maxExcludedElements <= 0 &&
+            maxMappingsWithoutBlocks > Math.floor(minNonMappedElementsT2 / 2.0);
+        boolean allMappedT2 = minNonMappedElementsT2 - maxExcludedElements <= 0 &&
+            maxMappingsWithoutBlocks > Math.floor(minNonMappedElementsT1 / 2.0);
+        return !moreMappedThanNonMappedT1AndT2 && !allMappedT1 && !allMappedT2;
+    }
+
     private void checkForOperationMoves(List<UMLOperation> addedOperations, List<UMLOperation> removedOperations) throws
         RefactoringMinerTimedOutException {
         if (addedOperations.size() <= removedOperations.size()) {
@@ -1382,12 +1567,9 @@ public class UMLModelDiff {
                  addedOperations.iterator(); addedOperationIterator.hasNext(); ) {
                 UMLOperation addedOperation = addedOperationIterator.next();
                 TreeMap<Integer, List<UMLOperationBodyMapper>> operationBodyMapperMap = new TreeMap<>();
-                for (UMLOperation removedOperation : removedOperations) {
-                    UMLOperationBodyMapper operationBodyMapper =
-                        new UMLOperationBodyMapper(removedOperation, addedOperation,
-                            getUMLClassDiff(removedOperation.getClassName()));
-                    int mappings = operationBodyMapper.mappingsWithoutBlocks();
-                    if (mappings > 0 && mappedElementsMoreThanNonMappedT1AndT2(mappings, operationBodyMapper)) {
+                for (UMLOperationBodyMapper operationBodyMapper :
+                    getOperationMoveMappers(removedOperations, Collections.singletonList(addedOperation))) {
+                    if (isOperationMoveCandidate(operationBodyMapper)) {
                         int exactMatches = operationBodyMapper.exactMatches();
                         if (operationBodyMapperMap.containsKey(exactMatches)) {
                             List<UMLOperationBodyMapper> mapperList = operationBodyMapperMap.get(exactMatches);
@@ -1455,6 +1637,8 @@ public class UMLModelDiff {
                             if (addedClass != null) {
                                 checkForExtractedOperationsWithinMovedMethod(firstMapper, addedClass);
                             }
+                            operationMoveChecks.clear();
+                            operationBodyFingerprints.clear();
                         }
                     }
                 }
@@ -1465,12 +1649,9 @@ public class UMLModelDiff {
                 UMLOperation removedOperation = removedOperationIterator.next();
                 TreeMap<Integer, List<UMLOperationBodyMapper>> operationBodyMapperMap =
                     new TreeMap<>();
-                for (UMLOperation addedOperation : addedOperations) {
-                    UMLOperationBodyMapper operationBodyMapper =
-                        new UMLOperationBodyMapper(removedOperation, addedOperation,
-                            getUMLClassDiff(removedOperation.getClassName()));
-                    int mappings = operationBodyMapper.mappingsWithoutBlocks();
-                    if (mappings > 0 && mappedElementsMoreThanNonMappedT1AndT2(mappings, operationBodyMapper)) {
+                for (UMLOperationBodyMapper operationBodyMapper :
+                    getOperationMoveMappers(Collections.singletonList(removedOperation), addedOperations)) {
+                    if (isOperationMoveCandidate(operationBodyMapper)) {
                         int exactMatches = operationBodyMapper.exactMatches();
                         if (operationBodyMapperMap.containsKey(exactMatches)) {
                             List<UMLOperationBodyMapper> mapperList = operationBodyMapperMap.get(exactMatches);
@@ -1534,6 +1715,8 @@ public class UMLModelDiff {
                                 new UMLOperationDiff(removedOperation, addedOperation, firstMapper.getMappings());
                             refactorings.addAll(operationSignatureDiff.getRefactorings());
                             refactorings.add(refactoring);
+                            operationMoveChecks.clear();
+                            operationBodyFingerprints.clear();
                         }
                     }
                 }
@@ -1553,7 +1736,7 @@ public class UMLModelDiff {
         Set<OperationInvocation> newInvocations = new LinkedHashSet<>(addedInvocations);
         newInvocations.removeAll(intersection);
         for (OperationInvocation newInvocation : newInvocations) {
-            for (UMLOperation operation : addedClass.getOperations()) {
+            for (UMLOperation operation : addedClass.getOperationsNamed(newInvocation.getMethodName())) {
                 if (!operation.isAbstract() && !operation.hasEmptyBody() &&
                     newInvocation.matchesOperation(operation, addedOperation.variableTypeMap(), this)) {
                     ExtractOperationDetection detection = new ExtractOperationDetection(movedMethodMapper,
@@ -1660,19 +1843,13 @@ addedOperation.isSetter()) &&
     }
 
     private String isRenamedClass(UMLClass umlClass) {
-        for (UMLClassRenameDiff renameDiff : classRenameDiffList) {
-            if (renameDiff.getOriginalClass().equals(umlClass))
-                return renameDiff.getRenamedClass().getQualifiedName();
-        }
-        return null;
+        UMLClassRenameDiff renameDiff = classDiffRegistry.findClassRename(umlClass);
+        return renameDiff != null ? renameDiff.getRenamedClass().getQualifiedName() : null;
     }
 
     private String isMovedClass(UMLClass umlClass) {
-        for (UMLClassMoveDiff moveDiff : classMoveDiffList) {
-            if (moveDiff.getOriginalClass().equals(umlClass))
-                return moveDiff.getMovedClass().getQualifiedName();
-        }
-        return null;
+        UMLClassMoveDiff moveDiff = classDiffRegistry.findClassMove(umlClass);
+        return moveDiff != null ? moveDiff.getMovedClass().getQualifiedName() : null;
     }
 
     public void checkForGeneralizationChanges() {
@@ -1935,10 +2112,8 @@ addedOperation.isSetter()) &&
         if (expression != null) {
             int originalDistance = StringDistance.editDistance(expression, addedOperation.getNonQualifiedClassName());
             for (UMLOperation operation : addedOperations) {
-                UMLClassBaseDiff classDiff = getUMLClassDiff(operation.getClassName());
-                boolean isInterface = classDiff != null && classDiff.nextClass.isInterface();
                 if (!operation.equals(addedOperation) && addedOperation.equalSignature(
-                    operation) && !operation.isAbstract() && !isInterface) {
+                    operation) && !operation.isAbstract() && !isInterface(operation.getClassName())) {
                     int newDistance = StringDistance.editDistance(expression, operation.getNonQualifiedClassName());
                     if (newDistance < originalDistance) {
                         return true;
@@ -1949,6 +2124,11 @@ addedOperation.isSetter()) &&
         return false;
     }
 
+    private boolean isInterface(String className) {
+        UMLClassBaseDiff classDiff = getUMLClassDiff(className);
+        return classDiff != null && classDiff.nextClass.isInterface();
+    }
+
     private boolean sourceClassImportsSuperclassOfTargetClass(String sourceClassName, String targetClassName) {
         UMLClassBaseDiff targetClassDiff = getUMLClassDiff(targetClassName);
         if (targetClassDiff != null && targetClassDiff.getSuperclass() != null) {
@@ -2196,7 +2376,8 @@ addedOperation.isSetter()) &&
                             LeafMapping mapping =
                                 new LeafMapping(v1.getInitializer(), attributeDeclaration.getInitializer(),
                                     operationBodyMapper.getOperation1(),
-                                    operationBodyMapper.getOperation2());
+                                    operationBodyMapper.getOperation2(),
+                                    operationBodyMapper.getArgumentizedStrings());
                             operationBodyMapper.getMappings().add(mapping);
                             break;
                         }
@@ -2279,8 +2460,68 @@ addedOperation.isSetter()) &&
         return false;
     }
 
+    /**
+     * Processes the diffs of the classes that both models contain, one after another, and keeps the ones that are not
+     * empty. With a mapper executor, the operations with the same signature are mapped beforehand across all the
+     * class diffs.
+     */
+    public void processCommonClassDiffs(List<UMLClassDiff> classDiffs) throws RefactoringMinerTimedOutException {
+        for (UMLClassDiff classDiff : classDiffs) {
+            classDiff.processDeclarations();
+        }
+        if (mapperExecutor != null) {
+            mapOperationsWithSameSignature(classDiffs);
+        }
+        for (UMLClassDiff classDiff : classDiffs) {
+            classDiff.processBodies();
+            if (!classDiff.isEmpty()) {
+                addUMLClassDiff(classDiff);
+            }
+        }
+    }
+
+    /**
+     * Maps the operations with the same signature on the mapper executor, for the class diffs to use while they
+     * are processed.
+     */
+    private void mapOperationsWithSameSignature(List<UMLClassDiff> classDiffs) throws
+        RefactoringMinerTimedOutException {
+        List<UMLClassDiff> pairClassDiffs = new ArrayList<>();
+        List<UMLOperation> pairOriginalOperations = new ArrayList<>();
+        List<UMLOperation> pairNextOperations = new ArrayList<>();
+        for (UMLClassDiff classDiff : classDiffs) {
+            for (UMLOperation originalOperation : classDiff.getOriginalClass().getOperations()) {
+                for (UMLOperation nextOperation : classDiff.getNextClass().getOperations()) {
+                    if (originalOperation.equalsQualified(nextOperation)) {
+                        pairClassDiffs.add(classDiff);
+                        pairOriginalOperations.add(originalOperation);
+                        pairNextOperations.add(nextOperation);
+                    }
+                }
+            }
+        }
+        List<Future<UMLOperationBodyMapper>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < pairClassDiffs.size(); i++) {
+                UMLClassDiff classDiff = pairClassDiffs.get(i);
+                UMLOperation originalOperation = pairOriginalOperations.get(i);
+                UMLOperation nextOperation = pairNextOperations.get(i);
+                futures.add(mapperExecutor.submit(
+                    () -> new UMLOperationBodyMapper(originalOperation, nextOperation, classDiff)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                pairClassDiffs.get(i).addSameSignatureMapper(awaitMapper(futures.get(i)));
+            }
+        } finally {
+            for (Future<UMLOperationBodyMapper> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
     public void addUMLClassDiff(UMLClassDiff classDiff) {
         this.commonClassDiffList.add(classDiff);
+        classDiffRegistry.addCommonClassDiff(classDiff);
     }
 
     public void addUmlFileDiff(UMLFileDiff fileDiff) {
@@ -2293,4 +2534,84 @@ addedOperation.isSetter()) &&
         }
         return true;
     }
+
+    /**
+     * The outcome of checking a pair of operations for a move: the mapper if it passed the check, or null if
+     * the pair was rejected. The outcome holds while the class diff of the removed operation is the same,
+     * and a rejection also while the added class of the added operation is the same, since the check consults it.
+     */
+    private static class OperationMoveCheck {
+        private final UMLClassBaseDiff classDiff;
+        private final UMLClass addedClass;
+        private final UMLOperationBodyMapper mapper;
+
+        private OperationMoveCheck(UMLClassBaseDiff classDiff, UMLClass addedClass, UMLOperationBodyMapper mapper) {
+            this.classDiff = classDiff;
+            this.addedClass = addedClass;
+            this.mapper = mapper;
+        }
+    }
+
+    /**
+     * The statements of an operation body, counted the same way as the mapper counts its mapped and non-mapped
+     * elements.
+     */
+    private static class OperationBodyFingerprint {
+        private final boolean hasBody;
+        private boolean containsLambdas;
+        private int leaves;
+        private int innerNodes;
+        private int countableLeaves;
+        private int countableInnerNodes;
+        private int loops;
+        private int initializedVariableDeclarations;
+        private final Map<String, Integer> declaredVariableNames = new HashMap<>();
+
+        private OperationBodyFingerprint(UMLOperation operation) {
+            OperationBody body = operation.getBody();
+            this.hasBody = body != null;
+            if (body == null) {
+                return;
+            }
+            CompositeStatementObject composite = body.getCompositeStatement();
+            this.containsLambdas = !composite.getAllLambdas().isEmpty();
+            for (StatementObject leaf : composite.getLeaves()) {
+                leaves++;
+                if (leaf.countableStatement()) {
+                    countableLeaves++;
+                }
+                List<VariableDeclaration> variableDeclarations = leaf.getVariableDeclarations();
+                if (variableDeclarations.size() == 1) {
+                    VariableDeclaration variableDeclaration = variableDeclarations.get(0);
+                    declaredVariableNames.merge(variableDeclaration.getVariableName(), 1, Integer::sum);
+                    if (variableDeclaration.getInitializer() != null) {
+                        initializedVariableDeclarations++;
+                    }
+                }
+            }
+            for (CompositeStatementObject innerNode : composite.getInnerNodes()) {
+                if (innerNode == composite) {
+                    continue;
+                }
+                innerNodes++;
+                if (innerNode.countableStatement()) {
+                    countableInnerNodes++;
+                }
+                if (innerNode.isLoop()) {
+                    loops++;
+                }
+            }
+        }
+
+        /**
+         * @return The number of statement pairs of the two operations declaring a variable with the same name.
+         */
+        private int maxStatementsDeclaringSameVariable(OperationBodyFingerprint other) {
+            int count = 0;
+            for (Map.Entry<String, Integer> entry : declaredVariableNames.entrySet()) {
+                count += entry.getValue() * other.declaredVariableNames.getOrDefault(entry.getKey(), 0);
+            }
+            return count;
+        }
+    }
 }
@@ -0,0 +1,162 @@
+package org.jetbrains.research.kotlinrminer.ide.uml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jetbrains.research.kotlinrminer.ide.diff.RenamePattern;
+
+/**
+ * Hash indexes of the operations and attributes of a class. The signature keys contain only the parts of a member
+ * that must be equal for the checks of {@link UMLAbstractClass} that ignore changed types, so all the members that
+ * may match a member are in the bucket of its key and only they have to be checked.
+ */
+class ClassMemberIndex {
+    private final Map<String, List<UMLOperation>> operationsBySignature = new HashMap<>();
+    private final Map<String, List<UMLOperation>> operationsByNameAndSignature = new HashMap<>();
+    private final Map<String, List<UMLOperation>> operationsByName = new HashMap<>();
+    private final Map<String, List<UMLAttribute>> attributesBySignature = new HashMap<>();
+    private final Set<String> attributeNames = new HashSet<>();
+    private Integer fingerprint;
+    /**
+     * The member names after the replacement of the last rename pattern asked for, which is usually asked for again
+     * for the other members of the compared class.
+     */
+    private RenamedNames renamedOperationNames;
+    private RenamedNames renamedAttributeNames;
+
+    ClassMemberIndex(List<UMLOperation> operations, List<UMLAttribute> attributes) {
+        operations.forEach(this::addOperation);
+        attributes.forEach(this::addAttribute);
+    }
+
+    void addOperation(UMLOperation operation) {
+        String signatureKey = signatureKey(operation);
+        operationsBySignature.computeIfAbsent(signatureKey, k -> new ArrayList<>()).add(operation);
+        operationsByNameAndSignature.computeIfAbsent(operation.getName() + "|" + signatureKey,
+                                                     k -> new ArrayList<>()).add(operation);
+        operationsByName.computeIfAbsent(operation.getName(), k -> new ArrayList<>()).add(operation);
+        fingerprint = null;
+        renamedOperationNames = null;
+    }
+
+    void addAttribute(UMLAttribute attribute) {
+        attributesBySignature.computeIfAbsent(signatureKey(attribute), k -> new ArrayList<>()).add(attribute);
+        attributeNames.add(attribute.getName());
+        fingerprint = null;
+        renamedAttributeNames = null;
+    }
+
+    /**
+     * @return The operations, in class order, whose signature may be equal to the signature of the operation when
+     * the changed types and the equivalent names are ignored.
+     */
+    List<UMLOperation> operationsWithSignatureOf(UMLOperation operation) {
+        return operationsBySignature.getOrDefault(signatureKey(operation), Collections.emptyList());
+    }
+
+    /**
+     * @return The operations, in class order, with the name of the operation whose signature may be equal to the
+     * signature of the operation when the changed types are ignored.
+     */
+    List<UMLOperation> operationsWithNameAndSignatureOf(UMLOperation operation) {
+        return operationsByNameAndSignature.getOrDefault(operation.getName() + "|" + signatureKey(operation),
+                                                         Collections.emptyList());
+    }
+
+    /**
+     * @return The operations, in class order, with the name.
+     */
+    List<UMLOperation> operationsNamed(String name) {
+        return operationsByName.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * @return The attributes, in class order, that may be equal to the attribute when the changed types are ignored.
+     */
+    List<UMLAttribute> attributesWithSignatureOf(UMLAttribute attribute) {
+        return attributesBySignature.getOrDefault(signatureKey(attribute), Collections.emptyList());
+    }
+
+    boolean containsOperationNamed(String name) {
+        return operationsByName.containsKey(name);
+    }
+
+    boolean containsAttributeNamed(String name) {
+        return attributeNames.contains(name);
+    }
+
+    /**
+     * @return True if the name results from the replacement of the pattern in the name of an operation that contains
+     * the part before the pattern.
+     */
+    boolean containsOperationRenamedTo(String name, RenamePattern pattern) {
+        RenamedNames renamedNames = renamedOperationNames;
+        if (renamedNames == null || !renamedNames.pattern.equals(pattern)) {
+            renamedNames = new RenamedNames(pattern, operationsByName.keySet());
+            renamedOperationNames = renamedNames;
+        }
+        return renamedNames.names.contains(name);
+    }
+
+    /**
+     * @return True if the name results from the replacement of the pattern in the name of an attribute that contains
+     * the part before the pattern.
+     */
+    boolean containsAttributeRenamedTo(String name, RenamePattern pattern) {
+        RenamedNames renamedNames = renamedAttributeNames;
+        if (renamedNames == null || !renamedNames.pattern.equals(pattern)) {
+            renamedNames = new RenamedNames(pattern, attributeNames);
+            renamedAttributeNames = renamedNames;
+        }
+        return renamedNames.names.contains(name);
+    }
+
+    /**
+     * A hash of the signature keys of the operations and of the attributes. Two classes whose members all match
+     * each other when the changed types are ignored have the same keys, and therefore the same fingerprint.
+     */
+    int getFingerprint() {
+        Integer hash = fingerprint;
+        if (hash == null) {
+            hash = 31 * operationsBySignature.keySet().hashCode() + attributesBySignature.keySet().hashCode();
+            fingerprint = hash;
+        }
+        return hash;
+    }
+
+    private static String signatureKey(UMLOperation operation) {
+        StringBuilder key = new StringBuilder();
+        key.append(operation.isAbstract()).append('|');
+        for (UMLTypeParameter typeParameter : operation.getTypeParameters()) {
+            key.append(typeParameter.getName()).append(',');
+        }
+        key.append('|');
+        for (UMLParameter parameter : operation.getParameters()) {
+            key.append(parameter.getKind()).append(' ').append(parameter.getName()).append(',');
+        }
+        return key.toString();
+    }
+
+    private static String signatureKey(UMLAttribute attribute) {
+        return attribute.isStatic() + "|" + attribute.isFinal() + "|" + attribute.getName();
+    }
+
+    private static class RenamedNames {
+        private final RenamePattern pattern;
+        private final Set<String> names = new HashSet<>();
+
+        private RenamedNames(RenamePattern pattern, Set<String> originalNames) {
+            this.pattern = pattern;
+            for (String originalName : originalNames) {
+                if (originalName.contains(pattern.getBefore())) {
+                    names.add(originalName.replace(pattern.getBefore(), pattern.getAfter()));
+                }
+            }
+        }
+    }
+}
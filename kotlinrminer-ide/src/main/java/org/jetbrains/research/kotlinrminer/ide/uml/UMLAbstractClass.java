@@ -7,6 +7,7 @@ import org.jetbrains.research.kotlinrminer.common.util.StringDistance;
 import org.jetbrains.research.kotlinrminer.common.util.PrefixSuffixUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -18,6 +19,10 @@ public abstract class UMLAbstractClass {
     protected List<UMLOperation> operations;
     protected List<UMLAttribute> attributes;
     protected List<UMLCompanionObject> companionObjects;
+    /**
+     * Built on first use from the operations and attributes and updated when either is added.
+     */
+    private transient ClassMemberIndex memberIndex;
 
     public UMLAbstractClass() {
         this.operations = new ArrayList<>();
@@ -31,10 +36,25 @@ public abstract class UMLAbstractClass {
 
     public void addOperation(UMLOperation operation) {
         this.operations.add(operation);
+        if (memberIndex != null) {
+            memberIndex.addOperation(operation);
+        }
     }
 
     public void addAttribute(UMLAttribute attribute) {
         this.attributes.add(attribute);
+        if (memberIndex != null) {
+            memberIndex.addAttribute(attribute);
+        }
+    }
+
+    private ClassMemberIndex memberIndex() {
+        ClassMemberIndex index = memberIndex;
+        if (index == null) {
+            index = new ClassMemberIndex(operations, attributes);
+            memberIndex = index;
+        }
+        return index;
     }
 
     public void addCompanionObject(UMLCompanionObject operation) {
@@ -53,8 +73,16 @@ public abstract class UMLAbstractClass {
         return companionObjects;
     }
 
+    /**
+     * @return The operations, in class order, with the name, which are the only ones an invocation of the name can
+     * match.
+     */
+    public List<UMLOperation> getOperationsNamed(String name) {
+        return Collections.unmodifiableList(memberIndex().operationsNamed(name));
+    }
+
     public UMLOperation operationWithTheSameSignature(UMLOperation operation) {
-        for (UMLOperation originalOperation : operations) {
+        for (UMLOperation originalOperation : memberIndex().operationsNamed(operation.getName())) {
             if (originalOperation.equalSignature(operation))
                 return originalOperation;
         }
@@ -62,7 +90,7 @@ public abstract class UMLAbstractClass {
     }
 
     public boolean containsOperationWithTheSameSignatureIgnoringChangedTypes(UMLOperation operation) {
-        for (UMLOperation originalOperation : operations) {
+        for (UMLOperation originalOperation : memberIndex().operationsWithSignatureOf(operation)) {
             if (originalOperation.equalSignatureIgnoringChangedTypes(operation)) {
                 boolean originalOperationEmptyBody =
                     originalOperation.getBody() == null || originalOperation.hasEmptyBody();
@@ -75,15 +103,11 @@ public abstract class UMLAbstractClass {
     }
 
     public boolean containsOperationWithTheSameName(UMLOperation operation) {
-        for (UMLOperation originalOperation : operations) {
-            if (originalOperation.getName().equals(operation.getName()))
-                return true;
-        }
-        return false;
+        return memberIndex().containsOperationNamed(operation.getName());
     }
 
     public UMLAttribute attributeWithTheSameNameIgnoringChangedType(UMLAttribute attribute) {
-        for (UMLAttribute originalAttribute : attributes) {
+        for (UMLAttribute originalAttribute : memberIndex().attributesWithSignatureOf(attribute)) {
             if (originalAttribute.equalsIgnoringChangedType(attribute))
                 return originalAttribute;
         }
@@ -91,7 +115,7 @@ public abstract class UMLAbstractClass {
     }
 
     public boolean containsAttributeWithTheSameNameIgnoringChangedType(UMLAttribute attribute) {
-        for (UMLAttribute originalAttribute : attributes) {
+        for (UMLAttribute originalAttribute : memberIndex().attributesWithSignatureOf(attribute)) {
             if (originalAttribute.equalsIgnoringChangedType(attribute))
                 return true;
         }
@@ -99,19 +123,11 @@ public abstract class UMLAbstractClass {
     }
 
     public boolean containsAttributeWithTheSameName(UMLAttribute attribute) {
-        for (UMLAttribute originalAttribute : attributes) {
-            if (originalAttribute.getName().equals(attribute.getName()))
-                return true;
-        }
-        return false;
+        return memberIndex().containsAttributeNamed(attribute.getName());
     }
 
     public boolean containsAttributeWithName(String attributeName) {
-        for (UMLAttribute originalAttribute : attributes) {
-            if (originalAttribute.getName().equals(attributeName))
-                return true;
-        }
-        return false;
+        return memberIndex().containsAttributeNamed(attributeName);
     }
 
     public boolean hasAttributesAndOperationsWithCommonNames(UMLAbstractClass umlClass) {
@@ -167,6 +183,8 @@ public abstract class UMLAbstractClass {
             return false;
         if (this.operations.size() != umlClass.operations.size())
             return false;
+        if (this.memberIndex().getFingerprint() != umlClass.memberIndex().getFingerprint())
+            return false;
         for (UMLOperation operation : operations) {
             if (!umlClass.containsOperationWithTheSameSignatureIgnoringChangedTypes(operation)) {
                 return false;
@@ -281,36 +299,22 @@ public abstract class UMLAbstractClass {
     public boolean containsAttributeWithTheSameRenamePattern(UMLAttribute attribute, RenamePattern pattern) {
         if (pattern == null)
             return false;
-        for (UMLAttribute originalAttribute : attributes) {
-            String originalAttributeName = originalAttribute.getName();
-            if (originalAttributeName.contains(pattern.getBefore())) {
-                String originalAttributeNameAfterReplacement =
-                    originalAttributeName.replace(pattern.getBefore(), pattern.getAfter());
-                if (originalAttributeNameAfterReplacement.equals(attribute.getName()))
-                    return true;
-            }
-        }
-        return false;
+        return memberIndex().containsAttributeRenamedTo(attribute.getName(), pattern);
     }
 
     public boolean containsOperationWithTheSameRenamePattern(UMLOperation operation, RenamePattern pattern) {
         if (pattern == null)
             return false;
-        for (UMLOperation originalOperation : operations) {
-            String originalOperationName = originalOperation.getName();
-            if (originalOperationName.contains(pattern.getBefore())) {
-                String originalOperationNameAfterReplacement =
-                    originalOperationName.replace(pattern.getBefore(), pattern.getAfter());
-                if (originalOperationNameAfterReplacement.equals(operation.getName()))
-                    return true;
-            }
-        }
-        return false;
+        return memberIndex().containsOperationRenamedTo(operation.getName(), pattern);
     }
 
     public UMLOperation operationWithTheSameSignatureIgnoringChangedTypes(UMLOperation operation) {
         List<UMLOperation> matchingOperations = new ArrayList<>();
-        for (UMLOperation originalOperation : operations) {
+        // outside interfaces only an operation with the same name or two constructors can match
+        List<UMLOperation> candidateOperations = isInterface() || operation.isConstructor() ?
+            memberIndex().operationsWithSignatureOf(operation) :
+            memberIndex().operationsWithNameAndSignatureOf(operation);
+        for (UMLOperation originalOperation : candidateOperations) {
             boolean matchesOperation = isInterface() ?
                 originalOperation.equalSignatureIgnoringChangedTypes(operation) :
                 originalOperation.equalSignatureWithIdenticalNameIgnoringChangedTypes(operation);
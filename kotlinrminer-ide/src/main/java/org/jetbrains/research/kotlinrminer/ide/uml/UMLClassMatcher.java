@@ -3,7 +3,20 @@ package org.jetbrains.research.kotlinrminer.ide.uml;
 public interface UMLClassMatcher {
     boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile);
 
+    /**
+     * @return True if the matcher matches only classes with the same name, which lets the callers compare a removed
+     * class only with the added classes of its name.
+     */
+    default boolean matchesOnlySameName() {
+        return false;
+    }
+
     class Move implements UMLClassMatcher {
+        @Override
+        public boolean matchesOnlySameName() {
+            return true;
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameNameAndKind(addedClass)
                 && (removedClass.hasSameAttributesAndOperations(addedClass) || addedClass.getSourceFile().equals(
@@ -12,6 +25,11 @@ public interface UMLClassMatcher {
     }
 
     class RelaxedMove implements UMLClassMatcher {
+        @Override
+        public boolean matchesOnlySameName() {
+            return true;
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameNameAndKind(addedClass)
                 && (removedClass.hasCommonAttributesAndOperations(addedClass) || addedClass.getSourceFile().equals(
@@ -20,6 +38,11 @@ public interface UMLClassMatcher {
     }
 
     class ExtremelyRelaxedMove implements UMLClassMatcher {
+        @Override
+        public boolean matchesOnlySameName() {
+            return true;
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameNameAndKind(addedClass)
                 && (removedClass.hasAttributesAndOperationsWithCommonNames(
@@ -2,6 +2,7 @@ package org.jetbrains.research.kotlinrminer.ide.uml;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -26,6 +27,7 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
     private boolean isStatic;
     private boolean emptyBody;
     private OperationBody operationBody;
+    private transient Map<String, UMLType> variableTypeMap;
     private UMLJavadoc javadoc;
 
     public UMLOperation(String name, LocationInfo locationInfo) {
@@ -131,6 +133,7 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 
     public void setBody(OperationBody body) {
         this.operationBody = body;
+        this.variableTypeMap = null;
     }
 
     public boolean hasTestAnnotation() {
@@ -177,17 +180,26 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
         return null;
     }
 
+    /**
+     * @return The types of the parameters and of the variables declared in the body. The map is built once, since
+     * every invocation matched against the operations asks for it, and cannot be modified.
+     */
     public Map<String, UMLType> variableTypeMap() {
-        Map<String, UMLType> variableTypeMap = new LinkedHashMap<>();
-        for (UMLParameter parameter : parameters) {
-            if (!parameter.getKind().equals("return")) {
-                variableTypeMap.put(parameter.getName(), parameter.getType());
+        Map<String, UMLType> typeMap = variableTypeMap;
+        if (typeMap == null) {
+            typeMap = new LinkedHashMap<>();
+            for (UMLParameter parameter : parameters) {
+                if (!parameter.getKind().equals("return")) {
+                    typeMap.put(parameter.getName(), parameter.getType());
+                }
             }
+            for (VariableDeclaration declaration : getAllVariableDeclarations()) {
+                typeMap.put(declaration.getVariableName(), declaration.getType());
+            }
+            typeMap = Collections.unmodifiableMap(typeMap);
+            variableTypeMap = typeMap;
         }
-        for (VariableDeclaration declaration : getAllVariableDeclarations()) {
-            variableTypeMap.put(declaration.getVariableName(), declaration.getType());
-        }
-        return variableTypeMap;
+        return typeMap;
     }
 
     public int statementCount() {
@@ -211,6 +223,7 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 
     public void addParameter(UMLParameter parameter) {
         this.parameters.add(parameter);
+        this.variableTypeMap = null;
     }
 
     public List<UMLParameter> getParameters() {
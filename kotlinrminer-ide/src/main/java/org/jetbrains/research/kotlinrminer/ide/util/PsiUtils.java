@@ -1,15 +1,14 @@
 package org.jetbrains.research.kotlinrminer.ide.util;
 
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.util.TextRange;
 
 public class PsiUtils {
     public static int countColumn(int lineNumber, Document doc) {
-        TextRange textRange = new TextRange(doc.getLineStartOffset(lineNumber), doc.getLineEndOffset(lineNumber));
-        final String line =
-            textRange.substring(doc.getText());
+        CharSequence text = doc.getImmutableCharSequence();
+        int lineEnd = doc.getLineEndOffset(lineNumber);
         int count = 0;
-        for (char c : line.toCharArray()) {
+        for (int i = doc.getLineStartOffset(lineNumber); i < lineEnd; i++) {
+            char c = text.charAt(i);
             if (c == ' ')
                 count++;
             else if (c == '\t')